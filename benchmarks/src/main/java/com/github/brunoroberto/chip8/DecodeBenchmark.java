@@ -0,0 +1,278 @@
+package com.github.brunoroberto.chip8;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operation codes decoded per second through the 65536-entry decode table,
+ * versus the nested switch on the operation code that it replaced.
+ * <p>
+ * {@link #nestedSwitch(Blackhole)} is the dispatch of the original
+ * {@code Chip8.executeOperation}: a switch on the high nibble calling one
+ * method per type, which unpacks its operands with the {@code getX},
+ * {@code getKK}... helpers and switches again on the low bits for the 0, 8, E
+ * and F types. Each handler stores its operands, as the original read them
+ * into locals, and returns its operation instead of executing it. The original
+ * threw an exception for an invalid FX operation code; here it is returned as
+ * {@link Operation#INVALID} so that the error path does not dominate.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+
+    private static final int OPCODES = 1024;
+
+    private final short[] opCodes = new short[OPCODES];
+
+    // operands unpacked by the switch dispatch
+    private byte x;
+    private byte y;
+    private byte n;
+    private byte kk;
+    private short nnn;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < OPCODES; i++) {
+            this.opCodes[i] = (short) random.nextInt(0x10000);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void consumeOperands(Blackhole blackhole) {
+        blackhole.consume(this.x + this.y + this.n + this.kk + this.nnn);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPCODES)
+    public void table(Blackhole blackhole) {
+        for (short opCode : this.opCodes) {
+            blackhole.consume(Instruction.decode(opCode));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPCODES)
+    public void nestedSwitch(Blackhole blackhole) {
+        for (short opCode : this.opCodes) {
+            blackhole.consume(decodeOperation(opCode));
+        }
+    }
+
+    private Operation decodeOperation(short opCode) {
+        int type = (opCode & 0xF000);
+        switch (type) {
+            case 0x0000:
+                return opType0x0(opCode);
+            case 0x1000:
+                return opType0x1(opCode);
+            case 0x2000:
+                return opType0x2(opCode);
+            case 0x3000:
+                return opType0x3(opCode);
+            case 0x4000:
+                return opType0x4(opCode);
+            case 0x5000:
+                return opType0x5(opCode);
+            case 0x6000:
+                return opType0x6(opCode);
+            case 0x7000:
+                return opType0x7(opCode);
+            case 0x8000:
+                return opType0x8(opCode);
+            case 0x9000:
+                return opType0x9(opCode);
+            case 0xA000:
+                return opType0xA(opCode);
+            case 0xB000:
+                return opType0xB(opCode);
+            case 0xC000:
+                return opType0xC(opCode);
+            case 0xD000:
+                return opType0xD(opCode);
+            case 0xE000:
+                return opType0xE(opCode);
+            case 0xF000:
+                return opType0xF(opCode);
+            default:
+                return Operation.INVALID;
+        }
+    }
+
+    private Operation opType0x0(int opCode) {
+        switch (opCode) {
+            case 0x00E0:
+                return Operation.CLS;
+            case 0x00EE:
+                return Operation.RET;
+            default:
+                return Operation.SYS;
+        }
+    }
+
+    private Operation opType0x1(int opCode) {
+        this.nnn = getNNN(opCode);
+        return Operation.JP;
+    }
+
+    private Operation opType0x2(int opCode) {
+        this.nnn = getNNN(opCode);
+        return Operation.CALL;
+    }
+
+    private Operation opType0x3(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        return Operation.SE_VX_BYTE;
+    }
+
+    private Operation opType0x4(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        return Operation.SNE_VX_BYTE;
+    }
+
+    private Operation opType0x5(int opCode) {
+        this.x = getX(opCode);
+        this.y = getY(opCode);
+        return Operation.SE_VX_VY;
+    }
+
+    private Operation opType0x6(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        return Operation.LD_VX_BYTE;
+    }
+
+    private Operation opType0x7(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        return Operation.ADD_VX_BYTE;
+    }
+
+    private Operation opType0x8(int opCode) {
+        this.x = getX(opCode);
+        this.y = getY(opCode);
+        this.n = getN(opCode);
+        switch (this.n) {
+            case 0x0:
+                return Operation.LD_VX_VY;
+            case 0x1:
+                return Operation.OR;
+            case 0x2:
+                return Operation.AND;
+            case 0x3:
+                return Operation.XOR;
+            case 0x4:
+                return Operation.ADD_VX_VY;
+            case 0x5:
+                return Operation.SUB;
+            case 0x6:
+                return Operation.SHR;
+            case 0x7:
+                return Operation.SUBN;
+            case 0xE:
+                return Operation.SHL;
+            default:
+                return Operation.INVALID;
+        }
+    }
+
+    private Operation opType0x9(int opCode) {
+        this.x = getX(opCode);
+        this.y = getY(opCode);
+        return Operation.SNE_VX_VY;
+    }
+
+    private Operation opType0xA(int opCode) {
+        this.nnn = getNNN(opCode);
+        return Operation.LD_I;
+    }
+
+    private Operation opType0xB(int opCode) {
+        this.nnn = getNNN(opCode);
+        return Operation.JP_V0;
+    }
+
+    private Operation opType0xC(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        return Operation.RND;
+    }
+
+    private Operation opType0xD(int opCode) {
+        this.x = getX(opCode);
+        this.y = getY(opCode);
+        this.n = getN(opCode);
+        return Operation.DRW;
+    }
+
+    private Operation opType0xE(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        switch (this.kk) {
+            case (byte) 0x009E:
+                return Operation.SKP;
+            case (byte) 0x00A1:
+                return Operation.SKNP;
+            default:
+                return Operation.INVALID;
+        }
+    }
+
+    private Operation opType0xF(int opCode) {
+        this.x = getX(opCode);
+        this.kk = getKK(opCode);
+        switch (this.kk) {
+            case 0x07:
+                return Operation.LD_VX_DT;
+            case 0x0A:
+                return Operation.LD_VX_K;
+            case 0x15:
+                return Operation.LD_DT;
+            case 0x18:
+                return Operation.LD_ST;
+            case 0x1E:
+                return Operation.ADD_I;
+            case 0x29:
+                return Operation.LD_F;
+            case 0x33:
+                return Operation.LD_B;
+            case 0x55:
+                return Operation.LD_I_VX;
+            case 0x65:
+                return Operation.LD_VX_I;
+            default:
+                return Operation.INVALID;
+        }
+    }
+
+    private short getNNN(int opCode) {
+        return (short) (opCode & 0x0FFF);
+    }
+
+    private byte getKK(int opCode) {
+        return (byte) (opCode & 0x00FF);
+    }
+
+    private byte getN(int opCode) {
+        return (byte) (opCode & 0x000F);
+    }
+
+    private byte getX(int opCode) {
+        return (byte) ((opCode & 0x0F00) >>> 8);
+    }
+
+    private byte getY(int opCode) {
+        return (byte) ((opCode & 0x00F0) >>> 4);
+    }
+}
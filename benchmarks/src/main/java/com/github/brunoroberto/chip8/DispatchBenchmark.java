@@ -0,0 +1,42 @@
+package com.github.brunoroberto.chip8;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instructions per second of the interpreter on synthetic opcode mixes, for
+ * each execution tier: the interpreter with its decoded instruction cache,
+ * translated blocks run by the block loop, and blocks compiled to bytecode by
+ * {@link BlockCompiler}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    private static final int INSTRUCTIONS = 10_000;
+
+    @Param({"ALU", "BRANCH", "MEMORY", "DRAW"})
+    public String mix;
+
+    @Param({"INTERPRETER", "BLOCKS", "COMPILED"})
+    public String tier;
+
+    private Chip8 chip8;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.chip8 = Programs.headless(this.mix, !this.tier.equals("INTERPRETER"));
+        this.chip8.setCompilationEnabled(this.tier.equals("COMPILED"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public void execute() {
+        this.chip8.runFrame(INSTRUCTIONS);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.brunoroberto.chip8;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Ex9E/ExA1 key lookup, alone and while another thread keeps
+ * pressing and releasing keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class KeyboardBenchmark {
+
+    private final Keyboard keyboard = new Keyboard();
+    private int key;
+    private int inputKey;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.keyboard.press(0x5);
+        this.keyboard.press(0xA);
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    public boolean isKeyPressed() {
+        this.key = (this.key + 1) & 0xF;
+        return this.keyboard.isKeyPressed(this.key);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public boolean contendedIsKeyPressed() {
+        this.key = (this.key + 1) & 0xF;
+        return this.keyboard.isKeyPressed(this.key);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedInput() {
+        this.inputKey = (this.inputKey + 1) & 0xF;
+        this.keyboard.press(this.inputKey);
+        this.keyboard.release(this.inputKey);
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Small synthetic ROMs used by the benchmarks. Each one loops forever.
+ */
+final class Programs {
+
+    /**
+     * Register arithmetic: 6xkk, 7xkk and the 8xyN family.
+     */
+    static final int[] ALU = {
+            0x6001, // 200: LD V0, 1
+            0x6102, // 202: LD V1, 2
+            0x7001, // 204: ADD V0, 1
+            0x8014, // 206: ADD V0, V1
+            0x8102, // 208: AND V1, V0
+            0x8203, // 20A: XOR V2, V0
+            0x8306, // 20C: SHR V3
+            0x1204, // 20E: JP 204
+    };
+
+    /**
+     * Skips, calls and returns.
+     */
+    static final int[] BRANCH = {
+            0x7001, // 200: ADD V0, 1
+            0x3000, // 202: SE V0, 0
+            0x6101, // 204: LD V1, 1
+            0x4080, // 206: SNE V0, 80
+            0x6200, // 208: LD V2, 0
+            0x5010, // 20A: SE V0, V1
+            0x7101, // 20C: ADD V1, 1
+            0x2212, // 20E: CALL 212
+            0x1200, // 210: JP 200
+            0x00EE, // 212: RET
+    };
+
+    /**
+     * Memory reads and writes: Annn, Fx33, Fx55 and Fx65.
+     */
+    static final int[] MEMORY = {
+            0xA300, // 200: LD I, 300
+            0x7001, // 202: ADD V0, 1
+            0xF033, // 204: LD B, V0
+            0xF355, // 206: LD [I], V3
+            0xF365, // 208: LD V3, [I]
+            0x1200, // 20A: JP 200
+    };
+
+    /**
+     * Font sprites drawn all over the screen with Dxyn.
+     */
+    static final int[] DRAW = {
+            0x630F, // 200: LD V3, 0F
+            0x7001, // 202: ADD V0, 1
+            0x7103, // 204: ADD V1, 3
+            0x7201, // 206: ADD V2, 1
+            0x8232, // 208: AND V2, V3
+            0xF229, // 20A: LD F, V2
+            0xD015, // 20C: DRW V0, V1, 5
+            0x1202, // 20E: JP 202
+    };
+
+    private Programs() {
+    }
+
+    static int[] byName(String name) {
+        switch (name) {
+            case "ALU":
+                return ALU;
+            case "BRANCH":
+                return BRANCH;
+            case "MEMORY":
+                return MEMORY;
+            case "DRAW":
+                return DRAW;
+            default:
+                throw new IllegalArgumentException("unknown program: " + name);
+        }
+    }
+
+    static byte[] rom(int[] program) {
+        byte[] rom = new byte[program.length * 2];
+        for (int i = 0; i < program.length; i++) {
+            rom[i * 2] = (byte) (program[i] >>> 8);
+            rom[i * 2 + 1] = (byte) program[i];
+        }
+        return rom;
+    }
+
+    static Chip8 headless(String name, boolean translation) {
+        Chip8 chip8 = new Chip8(new Keyboard(), new NullDisplay(), new ScreenMemory());
+        chip8.setTranslationEnabled(translation);
+        chip8.setBlockingKeyWait(false);
+        chip8.load(rom(byName(name)));
+        return chip8;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.brunoroberto.chip8;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one frame: listing the lit pixels with
+ * {@link ScreenMemory#getActivePixels()}, and handing the frame to
+ * {@link Screen} and painting it, at several framebuffer fill ratios.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 320;
+
+    @Param({"0.05", "0.5", "1.0"})
+    public double fill;
+
+    private final ScreenMemory[] frames = {new ScreenMemory(HEIGHT), new ScreenMemory(HEIGHT)};
+    private int frame;
+
+    private Screen screen;
+    private BufferedImage target;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (ScreenMemory screenMemory : this.frames) {
+            for (int y = 0; y < ScreenMemory.ROWS; y++) {
+                for (int x = 0; x < ScreenMemory.COLUMNS; x++) {
+                    if (random.nextDouble() < this.fill) {
+                        screenMemory.setPixel(x, y);
+                    }
+                }
+            }
+        }
+        this.screen = new Screen();
+        this.screen.setSize(WIDTH, HEIGHT);
+        this.target = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        this.graphics = this.target.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.graphics.dispose();
+    }
+
+    @Benchmark
+    public List<ScreenMemory.ActivePixel> activePixels() {
+        return this.frames[this.frame ^= 1].getActivePixels();
+    }
+
+    @Benchmark
+    public BufferedImage drawAndPaint() {
+        this.screen.draw(this.frames[this.frame ^= 1]);
+        this.screen.paint(this.graphics);
+        return this.target;
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.brunoroberto.chip8;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emulated seconds per second of complete programs run headless through
+ * {@link Chip8#runFrame(int)}: 60 frames at the default clock, timers and
+ * presentation included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RomBenchmark {
+
+    @Param({"BRANCH", "DRAW"})
+    public String rom;
+
+    @Param({"false", "true"})
+    public boolean translation;
+
+    private Chip8 chip8;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.chip8 = Programs.headless(this.rom, this.translation);
+    }
+
+    @Benchmark
+    public long emulatedSecond() {
+        int instructionsPerFrame = Scheduler.DEFAULT_INSTRUCTIONS_PER_SECOND / Scheduler.FRAMES_PER_SECOND;
+        for (int frame = 0; frame < Scheduler.FRAMES_PER_SECOND; frame++) {
+            this.chip8.runFrame(instructionsPerFrame);
+        }
+        return this.chip8.getCycles();
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.brunoroberto.chip8;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sprite rows XORed into the framebuffer per second, one bit at a time through
+ * {@link ScreenMemory#setPixel(int, int)} as DXYN used to, and one row at a
+ * time through {@link ScreenMemory#drawSprite(int, int, int)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpriteBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private final ScreenMemory screenMemory = new ScreenMemory();
+    private final int[] x = new int[ROWS];
+    private final int[] y = new int[ROWS];
+    private final int[] sprites = new int[ROWS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < ROWS; i++) {
+            this.x[i] = random.nextInt(256);
+            this.y[i] = random.nextInt(256);
+            this.sprites[i] = random.nextInt(256);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void setPixelPerBit(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            int sprite = this.sprites[i];
+            boolean collision = false;
+            for (int col = 0; col < 8; col++) {
+                if ((sprite & 0x80) > 0) {
+                    collision |= this.screenMemory.setPixel(this.x[i] + col, this.y[i]);
+                }
+                sprite <<= 1;
+            }
+            blackhole.consume(collision);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void drawSpriteRow(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(this.screenMemory.drawSprite(this.x[i], this.y[i], this.sprites[i]));
+        }
+    }
+}
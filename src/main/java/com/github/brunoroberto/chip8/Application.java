@@ -2,12 +2,24 @@ package com.github.brunoroberto.chip8;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 
+@SuppressWarnings("serial")
 public class Application extends JFrame {
 
     private static final String APPLICATION_NAME = "JCHIP-8";
+    private static final String STATE_EXTENSION = ".state";
+    private static final int REWIND_SECONDS = 300;
+    private static final int REWIND_MEGABYTES = 16;
+    private static final double TURBO_SPEED = 4;
 
     private final Screen screen;
     private final Dimension screenSize;
@@ -28,20 +40,143 @@ public class Application extends JFrame {
         setVisible(true);
     }
 
-    public void start() {
+    public void start(String[] args) {
+        Sound sound = null;
+        boolean recorded = false;
         try {
-            Path romPath = selectRomFile();
+            Path romPath = args.length > 0 ? Paths.get(args[0]) : selectRomFile();
             byte[] rom = Files.readAllBytes(romPath);
 
-            ScreenMemory screenMemory = new ScreenMemory(screenSize.getHeight());
+            ScreenMemory screenMemory = new ScreenMemory();
 
-            Keyboard keyboard = new Keyboard();
-            this.addKeyListener(keyboard);
+            Tracer tracer = Tracer.fromSystemProperties();
+            tracer.closeOnShutdown();
 
-            Chip8 chip8 = new Chip8(keyboard, screen, screenMemory);
-            chip8.execute(rom);
+            Scheduler scheduler = Scheduler.fromSystemProperties(false);
+            Long seedProperty = Long.getLong("chip8.seed");
+            long seed = seedProperty != null ? seedProperty : System.nanoTime();
+
+            String recordFile = System.getProperty("chip8.record");
+            RecordingKeyboard recorder = recordFile == null ? null
+                    : new RecordingKeyboard(tracer, Paths.get(recordFile), seed,
+                    scheduler.getInstructionsPerSecond(), rom);
+            Keyboard keyboard = recorder != null ? recorder : new Keyboard(tracer);
+            this.addKeyListener(new KeyboardListener(keyboard));
+
+            Chip8 chip8 = new Chip8(keyboard, screen, screenMemory, tracer, new XorShiftRandom(seed));
+            sound = SquareWaveSound.open();
+            chip8.setSound(sound);
+            chip8.setIdleLoopSkipping(true);
+            screen.setMetrics(Metrics.register(chip8, romPath.getFileName().toString()));
+            if (recorder != null) {
+                recordSession(chip8, recorder);
+            } else {
+                RewindBuffer rewindBuffer = RewindBuffer.ofSeconds(
+                        Integer.getInteger("chip8.rewind.seconds", REWIND_SECONDS),
+                        Integer.getInteger("chip8.rewind.megabytes", REWIND_MEGABYTES) << 20);
+                chip8.addFrameListener(rewindBuffer);
+                addStateKeys(chip8, Paths.get(romPath + STATE_EXTENSION), rewindBuffer);
+            }
+            addTurboKey(scheduler, Double.parseDouble(System.getProperty("chip8.turbo", String.valueOf(TURBO_SPEED))));
+            chip8.load(rom);
+            scheduler.run(chip8);
+            while (recorder == null && chip8.isHalted()) {
+                // a fault halted the program: loading a state or rewinding restarts it
+                chip8.awaitRestart();
+                scheduler.run(chip8);
+            }
+            if (recorder != null) {
+                recorder.finish(chip8);
+                recorded = true;
+            }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            if (sound != null) {
+                sound.close();
+            }
+        }
+        if (recorded) {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * F5 saves the machine state next to the ROM, F9 restores it. Backspace
+     * rewinds one second, and keeps rewinding while held.
+     */
+    private void addStateKeys(Chip8 chip8, Path stateFile, RewindBuffer rewindBuffer) {
+        this.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_F5) {
+                    chip8.runOnFrameBoundary(() -> saveState(chip8, stateFile));
+                } else if (e.getKeyCode() == KeyEvent.VK_F9) {
+                    loadState(chip8, stateFile);
+                } else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+                    chip8.runOnFrameBoundary(() -> rewindBuffer.rewind(chip8, Scheduler.FRAMES_PER_SECOND));
+                }
+            }
+        });
+    }
+
+    /**
+     * Record the keys into the input log until the window is closed. Key waits
+     * must not block for the log to replay exactly, and save states and
+     * rewinding are not available since the log cannot hold them.
+     */
+    private void recordSession(Chip8 chip8, RecordingKeyboard recorder) {
+        chip8.setBlockingKeyWait(false);
+        chip8.addFrameListener(recorder);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                recorder.endSession();
+            }
+        });
+    }
+
+    /**
+     * Tab fast-forwards at the given multiple of the normal speed while held.
+     */
+    private void addTurboKey(Scheduler scheduler, double turboSpeed) {
+        double normalSpeed = scheduler.getSpeed();
+        this.setFocusTraversalKeysEnabled(false);
+        this.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_TAB) {
+                    scheduler.setSpeed(normalSpeed * turboSpeed);
+                }
+            }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_TAB) {
+                    scheduler.setSpeed(normalSpeed);
+                }
+            }
+        });
+    }
+
+    private void saveState(Chip8 chip8, Path stateFile) {
+        try {
+            SaveState.write(stateFile, SaveState.capture(chip8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadState(Chip8 chip8, Path stateFile) {
+        try {
+            ByteBuffer state = SaveState.read(stateFile);
+            SaveState.checkHeader(state);
+            chip8.runOnFrameBoundary(() -> chip8.restoreState(state));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cannot load " + stateFile + ": " + e.getMessage());
         }
     }
 
@@ -58,7 +193,7 @@ public class Application extends JFrame {
     }
 
     public static void main(String[] args) {
-        new Application().start();
+        new Application().start(args);
     }
 
 }
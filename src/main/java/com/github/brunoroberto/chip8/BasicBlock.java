@@ -0,0 +1,39 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * A run of straight-line instructions that ends at the first instruction that
+ * can change the program counter (1nnn, 2nnn, 00EE, Bnnn, the skips) or write
+ * to memory (FX33, FX55).
+ * <p>
+ * Only the last instruction of a block can leave it, so the block can be
+ * executed without fetching or decoding from {@link Memory}.
+ * </p>
+ */
+final class BasicBlock {
+
+    static final int MAX_LENGTH = 64;
+
+    final int start;
+    final int end; // exclusive
+    final Instruction[] instructions;
+
+    int executions;
+    CompiledBlock compiled; // null until the block gets hot enough, see BlockCompiler
+
+    BasicBlock(int start, Instruction[] instructions) {
+        this.start = start;
+        this.end = start + instructions.length * 2;
+        this.instructions = instructions;
+    }
+
+    int length() {
+        return this.instructions.length;
+    }
+
+    /**
+     * @return true if the instruction may transfer control or write to memory
+     */
+    static boolean endsBlock(Instruction instruction) {
+        return instruction.operation.endsBlock();
+    }
+}
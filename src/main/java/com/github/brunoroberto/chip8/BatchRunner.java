@@ -0,0 +1,278 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many ROM and input script combinations in parallel, each on its own
+ * headless, unthrottled {@link Chip8} instance.
+ * <p>
+ * Usage: {@code BatchRunner <rom file or directory> <frames> [input scripts...]}
+ * </p>
+ * <p>
+ * Every ROM is run once per input script (once with no input if no script is
+ * given) for the given number of 60Hz frames, and one result line is printed
+ * per run: ROM, script, frames, instructions, framebuffer hash, elapsed time
+ * and the fault that stopped the run, if any.
+ * </p>
+ * <p>
+ * Every run seeds its CXKK generator with the same seed ({@code -Dchip8.seed},
+ * 0 by default), so the same ROM and script always give the same result.
+ * </p>
+ */
+public class BatchRunner {
+
+    public static final long DEFAULT_SEED = 0;
+
+    private final ExecutorService executor;
+    private final int instructionsPerSecond;
+    private final long seed;
+
+    public BatchRunner(ExecutorService executor, int instructionsPerSecond) {
+        this(executor, instructionsPerSecond, DEFAULT_SEED);
+    }
+
+    public BatchRunner(ExecutorService executor, int instructionsPerSecond, long seed) {
+        this.executor = executor;
+        this.instructionsPerSecond = instructionsPerSecond;
+        this.seed = seed;
+    }
+
+    /**
+     * Result of one ROM run
+     */
+    public static final class Result {
+
+        private final String rom;
+        private final String script;
+        private final long frames;
+        private final long cycles;
+        private final long framebufferHash;
+        private final long[] checkpointHashes;
+        private final long elapsedNanos;
+        private final String fault;
+
+        Result(String rom, String script, long frames, long cycles, long framebufferHash, long[] checkpointHashes,
+               long elapsedNanos, String fault) {
+            this.rom = rom;
+            this.script = script;
+            this.frames = frames;
+            this.cycles = cycles;
+            this.framebufferHash = framebufferHash;
+            this.checkpointHashes = checkpointHashes;
+            this.elapsedNanos = elapsedNanos;
+            this.fault = fault;
+        }
+
+        public String getRom() {
+            return rom;
+        }
+
+        public String getScript() {
+            return script;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public long getCycles() {
+            return cycles;
+        }
+
+        public long getFramebufferHash() {
+            return framebufferHash;
+        }
+
+        /**
+         * @return the framebuffer hash at each checkpoint frame the run
+         * reached, in checkpoint order; shorter than the checkpoints if the
+         * run faulted before the last one
+         */
+        public long[] getCheckpointHashes() {
+            return checkpointHashes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the fault that stopped the run, null if it ran to the end
+         */
+        public String getFault() {
+            return fault;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s frames=%d cycles=%d hash=%016x ms=%d%s", rom, script, frames, cycles,
+                    framebufferHash, elapsedNanos / 1_000_000, fault == null ? "" : " fault=" + fault);
+        }
+    }
+
+    /**
+     * Run one ROM with one input script on the calling thread.
+     */
+    public Result run(String name, byte[] rom, InputScript script, long frames) {
+        return run(name, rom, script, new long[]{frames});
+    }
+
+    /**
+     * Run one ROM with one input script on the calling thread, up to the last
+     * checkpoint, hashing the framebuffer at the end of every checkpoint frame.
+     *
+     * @param checkpoints frame numbers, strictly increasing
+     */
+    public Result run(String name, byte[] rom, InputScript script, long[] checkpoints) {
+        Keyboard keyboard = new Keyboard();
+        ScreenMemory screenMemory = new ScreenMemory();
+        Chip8 chip8 = new Chip8(keyboard, new NullDisplay(), screenMemory, Tracer.errorsOnly(),
+                new XorShiftRandom(this.seed));
+        chip8.setTranslationEnabled(true);
+        chip8.setBlockingKeyWait(false);
+        chip8.setIdleLoopSkipping(true);
+
+        InputScript.Player player = script.player(keyboard);
+        chip8.addFrameListener(player);
+        Checkpoints hashes = new Checkpoints(checkpoints, screenMemory);
+        chip8.addFrameListener(hashes);
+
+        String fault = null;
+        long start = System.nanoTime();
+        try {
+            chip8.load(rom);
+            player.applyUntil(0);
+            Scheduler.unthrottled(this.instructionsPerSecond).run(chip8, checkpoints[checkpoints.length - 1]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fault = "interrupted";
+        } catch (RuntimeException e) {
+            fault = e.toString();
+        }
+        if (chip8.isHalted()) {
+            fault = chip8.getFault().toString();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(name, script.getName(), chip8.getFrames(), chip8.getCycles(), screenMemory.hash(),
+                hashes.reached(), elapsed, fault);
+    }
+
+    /**
+     * Hashes the framebuffer when a checkpoint frame completes
+     */
+    private static final class Checkpoints implements FrameListener {
+
+        private final long[] frames;
+        private final long[] hashes;
+        private final ScreenMemory screenMemory;
+        private int next;
+
+        Checkpoints(long[] frames, ScreenMemory screenMemory) {
+            this.frames = frames;
+            this.hashes = new long[frames.length];
+            this.screenMemory = screenMemory;
+        }
+
+        @Override
+        public void frameCompleted(Chip8 chip8) {
+            if (this.next < this.frames.length && chip8.getFrames() == this.frames[this.next]) {
+                this.hashes[this.next++] = this.screenMemory.hash();
+            }
+        }
+
+        long[] reached() {
+            return Arrays.copyOf(this.hashes, this.next);
+        }
+    }
+
+    /**
+     * Run every ROM with every script in parallel.
+     *
+     * @return the results, in ROM then script order
+     */
+    public List<Result> runAll(List<Path> roms, List<InputScript> scripts, long frames)
+            throws IOException, InterruptedException {
+        return runAll(roms, scripts, new long[]{frames});
+    }
+
+    /**
+     * Run every ROM with every script in parallel, hashing the framebuffer at
+     * every checkpoint, see {@link #run(String, byte[], InputScript, long[])}.
+     *
+     * @return the results, in ROM then script order
+     */
+    public List<Result> runAll(List<Path> roms, List<InputScript> scripts, long[] checkpoints)
+            throws IOException, InterruptedException {
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Path romPath : roms) {
+            byte[] rom = Files.readAllBytes(romPath);
+            String name = romPath.getFileName().toString();
+            for (InputScript script : scripts) {
+                futures.add(this.executor.submit(() -> run(name, rom, script, checkpoints)));
+            }
+        }
+        List<Result> results = new ArrayList<>(futures.size());
+        for (Future<Result> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("batch run failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    static List<Path> listRoms(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            List<Path> roms = new ArrayList<>();
+            roms.add(path);
+            return roms;
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchRunner <rom file or directory> <frames> [input scripts...]");
+            System.exit(-1);
+        }
+        List<Path> roms = listRoms(Paths.get(args[0]));
+        long frames = Long.parseLong(args[1]);
+        List<InputScript> scripts = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            scripts.add(InputScript.read(Paths.get(args[i])));
+        }
+        if (scripts.isEmpty()) {
+            scripts.add(InputScript.empty());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            BatchRunner runner = new BatchRunner(pool,
+                    Integer.getInteger("chip8.ips", Scheduler.DEFAULT_INSTRUCTIONS_PER_SECOND),
+                    Long.getLong("chip8.seed", DEFAULT_SEED));
+            long start = System.nanoTime();
+            List<Result> results = runner.runAll(roms, scripts, frames);
+            results.forEach(System.out::println);
+            long faults = results.stream().filter(result -> result.getFault() != null).count();
+            System.out.println(String.format("%d runs, %d faults in %d ms", results.size(), faults,
+                    (System.nanoTime() - start) / 1_000_000));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles hot {@link BasicBlock}s to JVM bytecode.
+ * <p>
+ * Each block becomes a hidden class, see
+ * {@link MethodHandles.Lookup#defineHiddenClass(byte[], boolean,
+ * MethodHandles.Lookup.ClassOption...)}, whose {@link CompiledBlock#run(Chip8)}
+ * calls the {@link Chip8} handler of every instruction directly, with the
+ * program counter and the decoded instruction as constants:
+ * </p>
+ *
+ * <pre>
+ *  chip8.setProgramCounter(0x202);
+ *  chip8.op6xkk(Instruction.decode((short) 0x6A02));
+ *  if (chip8.isHalted()) return 1;
+ *  chip8.setProgramCounter(0x204);
+ *  chip8.opDxyn(Instruction.decode((short) 0xDAB5));
+ *  ...
+ *  return n;
+ * </pre>
+ * <p>
+ * Every call site is monomorphic and HotSpot inlines the handlers of the block
+ * into one compiled method, instead of going through the megamorphic
+ * {@link Operation#execute(Chip8, Instruction)} call once per instruction.
+ * </p>
+ * <p>
+ * The code of a block only depends on its address and operation codes, so
+ * compiled blocks are shared by every interpreter in the JVM: interpreters
+ * running the same ROM compile each block once. The cache is cleared when it
+ * gets full; a hidden class is unloaded once no block refers to it.
+ * </p>
+ */
+final class BlockCompiler {
+
+    private static final int MAX_CACHED = 4096;
+
+    private static final String CHIP8 = "com/github/brunoroberto/chip8/Chip8";
+    private static final String INSTRUCTION = "com/github/brunoroberto/chip8/Instruction";
+    private static final String COMPILED_BLOCK = "com/github/brunoroberto/chip8/CompiledBlock";
+    private static final String BLOCK_CLASS = "com/github/brunoroberto/chip8/CompiledBlock$0x";
+    private static final String HANDLER_DESCRIPTOR = "(L" + INSTRUCTION + ";)V";
+
+    private static final int CLASS_VERSION = 65; // Java 21
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    // bytecode
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int SIPUSH = 0x11;
+    private static final int IFEQ = 0x99;
+    private static final int IRETURN = 0xAC;
+    private static final int RETURN = 0xB1;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int INVOKESTATIC = 0xB8;
+
+    // stack map frames
+    private static final int SAME_FRAME_MAX = 63;
+    private static final int SAME_FRAME_EXTENDED = 251;
+
+    private static final Map<Key, CompiledBlock> CACHE = new ConcurrentHashMap<>();
+
+    private BlockCompiler() {
+    }
+
+    /**
+     * @return the compiled block, or null if it could not be compiled, in
+     * which case the block is left to the {@link Translator} loop
+     */
+    static CompiledBlock compile(BasicBlock block) {
+        Key key = new Key(block);
+        CompiledBlock compiled = CACHE.get(key);
+        if (compiled != null) {
+            return compiled;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(generate(block), true);
+            compiled = (CompiledBlock) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            if (e instanceof Error && !(e instanceof LinkageError)) {
+                throw (Error) e;
+            }
+            return null;
+        }
+        if (CACHE.size() >= MAX_CACHED) {
+            CACHE.clear();
+        }
+        CompiledBlock cached = CACHE.putIfAbsent(key, compiled);
+        return cached != null ? cached : compiled;
+    }
+
+    /**
+     * @return the class file of the block
+     */
+    static byte[] generate(BasicBlock block) {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classEntry(BLOCK_CLASS + Integer.toHexString(block.start));
+        int superClass = pool.classEntry("java/lang/Object");
+        int blockInterface = pool.classEntry(COMPILED_BLOCK);
+        int objectInit = pool.methodEntry(superClass, "<init>", "()V");
+        int setProgramCounter = pool.methodEntry(pool.classEntry(CHIP8), "setProgramCounter", "(I)V");
+        int isHalted = pool.methodEntry(pool.classEntry(CHIP8), "isHalted", "()Z");
+        int decode = pool.methodEntry(pool.classEntry(INSTRUCTION), "decode", "(S)L" + INSTRUCTION + ";");
+        int code = pool.utf8("Code");
+        int stackMapTable = pool.utf8("StackMapTable");
+        int init = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int run = pool.utf8("run");
+        int runDescriptor = pool.utf8("(L" + CHIP8 + ";)I");
+
+        Bytes constructor = new Bytes();
+        constructor.u1(ALOAD_0).u1(INVOKESPECIAL).u2(objectInit).u1(RETURN);
+
+        Bytes body = new Bytes();
+        List<Integer> branchTargets = new ArrayList<>();
+        Instruction[] instructions = block.instructions;
+        for (int i = 0; i < instructions.length; i++) {
+            Instruction instruction = instructions[i];
+            int handler = pool.methodEntry(pool.classEntry(CHIP8), instruction.operation.handler(),
+                    HANDLER_DESCRIPTOR);
+            body.u1(ALOAD_1).u1(SIPUSH).u2(block.start + 2 * i + 2).u1(INVOKEVIRTUAL).u2(setProgramCounter);
+            body.u1(ALOAD_1).u1(SIPUSH).u2(instruction.opCode).u1(INVOKESTATIC).u2(decode);
+            body.u1(INVOKEVIRTUAL).u2(handler);
+            if (i < instructions.length - 1) {
+                // not halted: jump from the ifeq over itself (3 bytes) and the return (4 bytes)
+                body.u1(ALOAD_1).u1(INVOKEVIRTUAL).u2(isHalted);
+                body.u1(IFEQ).u2(3 + 4);
+                body.u1(SIPUSH).u2(i + 1).u1(IRETURN);
+                branchTargets.add(body.size());
+            }
+        }
+        body.u1(SIPUSH).u2(instructions.length).u1(IRETURN);
+
+        Bytes frames = new Bytes();
+        frames.u2(branchTargets.size());
+        int previous = -1;
+        for (int target : branchTargets) {
+            int delta = target - previous - 1;
+            if (delta <= SAME_FRAME_MAX) {
+                frames.u1(delta);
+            } else {
+                frames.u1(SAME_FRAME_EXTENDED).u2(delta);
+            }
+            previous = target;
+        }
+
+        Bytes classFile = new Bytes();
+        classFile.u4(0xCAFEBABE).u2(0).u2(CLASS_VERSION);
+        pool.writeTo(classFile);
+        classFile.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER).u2(thisClass).u2(superClass);
+        classFile.u2(1).u2(blockInterface);
+        classFile.u2(0); // fields
+        classFile.u2(2); // methods
+        classFile.u2(ACC_PUBLIC).u2(init).u2(initDescriptor).u2(1);
+        writeCode(classFile, code, 1, 1, constructor, -1, null);
+        classFile.u2(ACC_PUBLIC).u2(run).u2(runDescriptor).u2(1);
+        writeCode(classFile, code, 2, 2, body, branchTargets.isEmpty() ? -1 : stackMapTable, frames);
+        classFile.u2(0); // attributes
+        return classFile.toByteArray();
+    }
+
+    private static void writeCode(Bytes classFile, int code, int maxStack, int maxLocals, Bytes body,
+                                  int stackMapTable, Bytes frames) {
+        int attributes = stackMapTable < 0 ? 0 : 6 + frames.size();
+        classFile.u2(code).u4(12 + body.size() + attributes);
+        classFile.u2(maxStack).u2(maxLocals).u4(body.size()).bytes(body);
+        classFile.u2(0); // exception table
+        if (stackMapTable < 0) {
+            classFile.u2(0);
+        } else {
+            classFile.u2(1).u2(stackMapTable).u4(frames.size()).bytes(frames);
+        }
+    }
+
+    private static final class ConstantPool {
+
+        private static final int UTF8 = 1;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final Bytes entries = new Bytes();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            Integer index = this.indexes.get("U" + value);
+            if (index == null) {
+                index = add("U" + value);
+                this.entries.u1(UTF8).utf(value);
+            }
+            return index;
+        }
+
+        int classEntry(String name) {
+            Integer index = this.indexes.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                index = add("C" + name);
+                this.entries.u1(CLASS).u2(nameIndex);
+            }
+            return index;
+        }
+
+        int methodEntry(int owner, String name, String descriptor) {
+            String key = "M" + owner + " " + name + descriptor;
+            Integer index = this.indexes.get(key);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                int nameAndType = add("N" + name + descriptor);
+                this.entries.u1(NAME_AND_TYPE).u2(nameIndex).u2(descriptorIndex);
+                index = add(key);
+                this.entries.u1(METHOD_REF).u2(owner).u2(nameAndType);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = this.count++;
+            this.indexes.put(key, index);
+            return index;
+        }
+
+        void writeTo(Bytes classFile) {
+            classFile.u2(this.count).bytes(this.entries);
+        }
+    }
+
+    private static final class Bytes {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.bytes);
+
+        Bytes u1(int value) {
+            this.bytes.write(value);
+            return this;
+        }
+
+        Bytes u2(int value) {
+            this.bytes.write(value >>> 8);
+            this.bytes.write(value);
+            return this;
+        }
+
+        Bytes u4(int value) {
+            return u2(value >>> 16).u2(value);
+        }
+
+        Bytes utf(String value) {
+            try {
+                this.out.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        Bytes bytes(Bytes other) {
+            this.bytes.writeBytes(other.toByteArray());
+            return this;
+        }
+
+        int size() {
+            return this.bytes.size();
+        }
+
+        byte[] toByteArray() {
+            return this.bytes.toByteArray();
+        }
+    }
+
+    private static final class Key {
+
+        private final int start;
+        private final short[] opCodes;
+        private final int hash;
+
+        Key(BasicBlock block) {
+            this.start = block.start;
+            this.opCodes = new short[block.length()];
+            for (int i = 0; i < this.opCodes.length; i++) {
+                this.opCodes[i] = block.instructions[i].opCode;
+            }
+            this.hash = 31 * this.start + Arrays.hashCode(this.opCodes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.start == key.start && Arrays.equals(this.opCodes, key.opCodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
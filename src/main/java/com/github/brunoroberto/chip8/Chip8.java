@@ -1,6 +1,10 @@
 package com.github.brunoroberto.chip8;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <p>
@@ -29,12 +33,14 @@ import java.util.Arrays;
 public class Chip8 {
 
     private static final int START_ADDRESS = 0x200; // 512
-    private static final int CYCLE_PER_TICK = 10;
+    public static final int MAX_ROM_SIZE = Memory.SIZE - START_ADDRESS;
     private static final int V_REGISTER_SIZE = 16;
-    private static final int CPU_FREQUENCY = 1000 / 60; // 60Hz
+    private static final int NO_KEY = -1;
 
     private Memory memory;
     private Stack stack;
+    private final Translator translator;
+    private boolean translationEnabled = false;
     private final ScreenMemory screenMemory;
 
     // registers
@@ -66,211 +72,591 @@ public class Chip8 {
             0xF0, 0x80, 0xF0, 0x80, 0x80 // F
     };
 
+    private boolean waitForKeyRelease = false;
+    private boolean blockingKeyWait = true;
+    private int awaitedKey = NO_KEY; // key pressed during a non-blocking FX0A wait for release
     private boolean shouldDraw = false;
-    private boolean running = true;
+    private boolean idleLoopSkipping = false;
+    private int idleLoopLength; // instructions per iteration of the wait loop just detected, 0 if none
+    private volatile boolean running = true;
 
-    private final Screen screen;
+    private long cycles; // instructions executed
+    private long frames; // 60Hz frames run
+
+    private final Queue<Runnable> frameTasks = new ConcurrentLinkedQueue<>();
+    private volatile Thread frameTaskWaiter;
+    private FrameListener[] frameListeners = new FrameListener[0];
+
+    private final Display display;
+    private Sound sound = new NullSound();
+    private boolean soundPlaying;
+
+    private Metrics metrics;
+    private boolean collectMetrics;
+
+    private final Fault fault = new Fault();
+    private final FaultPolicy[] faultPolicies = new FaultPolicy[Fault.Kind.values().length];
+    private boolean halted;
+
+    private Profiler profiler;
+    private boolean profiling;
     private final Keyboard keyboard;
 
-    public Chip8(Keyboard keyboard, Screen canvas, ScreenMemory screenMemory) {
+    private final Tracer tracer;
+    private final boolean traceInstructions;
+
+    private final XorShiftRandom random;
+
+    public Chip8(Keyboard keyboard, Display display, ScreenMemory screenMemory) {
+        this(keyboard, display, screenMemory, Tracer.errorsOnly());
+    }
+
+    public Chip8(Keyboard keyboard, Display display, ScreenMemory screenMemory, Tracer tracer) {
+        this(keyboard, display, screenMemory, tracer, new XorShiftRandom());
+    }
+
+    /**
+     * @param random generator for CXKK, seed it to make a run reproducible
+     */
+    public Chip8(Keyboard keyboard, Display display, ScreenMemory screenMemory, Tracer tracer, XorShiftRandom random) {
         this.keyboard = keyboard;
-        this.screen = canvas;
+        this.tracer = tracer;
+        this.random = random;
+        this.traceInstructions = tracer.isInstructionTracing();
+        this.display = display;
         this.screenMemory = screenMemory;
         this.I = 0;
         this.PC = START_ADDRESS;
         this.V = new byte[V_REGISTER_SIZE];
         this.memory = new Memory();
         this.stack = new Stack();
+        this.translator = new Translator(this.memory);
+        Arrays.fill(this.faultPolicies, FaultPolicy.HALT);
+        this.faultPolicies[Fault.Kind.INVALID_OPCODE.ordinal()] = FaultPolicy.RESUME;
         loadFontSprites();
     }
 
+    /**
+     * Enable the translation tier, which runs hot basic blocks without fetching
+     * and decoding every instruction. The interpreter is always used for cold
+     * and self-modifying code.
+     */
+    public void setTranslationEnabled(boolean translationEnabled) {
+        this.translationEnabled = translationEnabled;
+    }
+
+    /**
+     * Compile hot blocks to bytecode when translation is enabled, see
+     * {@link BlockCompiler}. On by default.
+     */
+    void setCompilationEnabled(boolean compilationEnabled) {
+        this.translator.setCompilationEnabled(compilationEnabled);
+    }
+
+    /**
+     * Set the sink for the buzzer, silent by default. Must be called before the
+     * interpreter starts or from the emulation thread.
+     */
+    public void setSound(Sound sound) {
+        this.sound.setPlaying(false);
+        this.sound = sound;
+        this.soundPlaying = false;
+    }
+
+    /**
+     * Collect runtime metrics, see {@link Metrics#register(Chip8, String)}.
+     * Must be called before the interpreter starts or from the emulation
+     * thread.
+     */
+    void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        this.collectMetrics = metrics != null;
+    }
+
+    /**
+     * Count the executions and taken branches of every address, null to stop
+     * profiling. Must be called before the interpreter starts or from the
+     * emulation thread.
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        this.profiling = profiler != null;
+    }
+
+    /**
+     * Set what happens after a fault of the given kind. By default invalid
+     * operation codes are skipped and every other fault halts. Fetching outside
+     * memory always halts. Must be called before the interpreter starts or from
+     * the emulation thread.
+     */
+    public void setFaultPolicy(Fault.Kind kind, FaultPolicy policy) {
+        this.faultPolicies[kind.ordinal()] = policy;
+    }
+
+    /**
+     * Set what happens after every kind of fault, see
+     * {@link #setFaultPolicy(Fault.Kind, FaultPolicy)}.
+     */
+    public void setFaultPolicy(FaultPolicy policy) {
+        Arrays.fill(this.faultPolicies, policy);
+    }
+
+    /**
+     * @return the last fault; read it from the emulation thread or once the
+     * interpreter has stopped
+     */
+    public Fault getFault() {
+        return fault;
+    }
+
+    /**
+     * @return true if a fault halted the interpreter
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    /**
+     * Make FX0A complete when the key is released rather than when it is
+     * pressed, like the original COSMAC VIP interpreter.
+     */
+    public void setWaitForKeyRelease(boolean waitForKeyRelease) {
+        this.waitForKeyRelease = waitForKeyRelease;
+    }
+
+    /**
+     * When blocking, FX0A parks the emulation thread until a key event arrives
+     * from another thread. When not blocking, FX0A is executed again until the
+     * key state allows it to complete, so time keeps running and input can be
+     * fed from the emulation thread itself (scripted or replayed input).
+     */
+    public void setBlockingKeyWait(boolean blockingKeyWait) {
+        this.blockingKeyWait = blockingKeyWait;
+    }
+
+    /**
+     * Skip the rest of the frame when the program waits in a loop with no side
+     * effects: a jump to itself, a delay timer poll, or a non-blocking FX0A
+     * with no key to complete it. The skipped iterations are counted as
+     * executed, and whole iterations only are skipped, so the machine state at
+     * every frame boundary is the same as with every instruction executed.
+     * Skipped instructions are not traced, profiled nor counted in metrics. A
+     * key pressed from another thread during a skipped non-blocking FX0A is
+     * seen at the next frame.
+     */
+    public void setIdleLoopSkipping(boolean idleLoopSkipping) {
+        this.idleLoopSkipping = idleLoopSkipping;
+        this.idleLoopLength = 0;
+    }
+
     private void loadFontSprites() {
         for (int i = 0; i < this.fontSprites.length; i++) {
             this.memory.writeWord(i, (byte) fontSprites[i]);
         }
     }
 
-    private void loadRomIntoMemory(byte[] rom) {
+    /**
+     * Load a ROM at the program start address
+     *
+     * @throws IllegalArgumentException if the ROM is larger than
+     *                                  {@link #MAX_ROM_SIZE}
+     */
+    public void load(byte[] rom) {
         if (rom != null) {
-            short address = this.PC;
-            for (byte b : rom) {
-                this.memory.writeWord(address++, b);
+            if (rom.length > MAX_ROM_SIZE) {
+                throw new IllegalArgumentException("ROM too large: " + rom.length + " bytes");
             }
+            this.memory.load(this.PC, rom);
         }
     }
 
+    /**
+     * Load the ROM and run it in real time at the default clock, until stopped.
+     */
     public void execute(byte[] rom) throws InterruptedException {
-        loadRomIntoMemory(rom);
-        while (running) {
-            executeCycle();
-            Thread.sleep(CPU_FREQUENCY);
+        execute(rom, Scheduler.paced(Scheduler.DEFAULT_INSTRUCTIONS_PER_SECOND));
+    }
+
+    public void execute(byte[] rom, Scheduler scheduler) throws InterruptedException {
+        load(rom);
+        scheduler.run(this);
+    }
+
+    /**
+     * Run one 60Hz frame: execute the given number of instructions, then tick
+     * the timers and present the screen if it changed.
+     *
+     * @param instructions the number of instructions to execute
+     */
+    public void runFrame(int instructions) {
+        long start = this.collectMetrics ? System.nanoTime() : 0;
+        runFrameTasks();
+        executeCycle(instructions);
+        decrementTimers();
+        handleSound();
+        updateScreenIfNecessary();
+        this.frames++;
+        if (this.collectMetrics) {
+            long end = System.nanoTime();
+            this.metrics.frameCompleted(this.cycles, end - start, end);
+        }
+        for (FrameListener listener : this.frameListeners) {
+            listener.frameCompleted(this);
+        }
+    }
+
+    /**
+     * Add a listener called at the end of every frame. Must be called before the
+     * interpreter starts or from the emulation thread.
+     */
+    public void addFrameListener(FrameListener listener) {
+        FrameListener[] listeners = Arrays.copyOf(this.frameListeners, this.frameListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        this.frameListeners = listeners;
+    }
+
+    /**
+     * Run a task on the emulation thread at the start of the next frame, when
+     * the machine state is consistent. Used to save or restore the state of a
+     * running interpreter.
+     */
+    public void runOnFrameBoundary(Runnable task) {
+        this.frameTasks.add(task);
+        Thread waiter = this.frameTaskWaiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Run the frame tasks of an interpreter halted by a fault on the calling
+     * thread, as they are queued, until one of them restores a state and so
+     * restarts it. Returns at once if the interpreter was not halted.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitRestart() throws InterruptedException {
+        this.frameTaskWaiter = Thread.currentThread();
+        try {
+            while (this.halted) {
+                runFrameTasks();
+                if (!this.halted) {
+                    break;
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            this.frameTaskWaiter = null;
+        }
+    }
+
+    private void runFrameTasks() {
+        Runnable task;
+        while ((task = this.frameTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Write the complete machine state, see {@link SaveState} for the layout.
+     * Must be called from the emulation thread or while the interpreter is not
+     * running, see {@link #runOnFrameBoundary(Runnable)}.
+     */
+    public void saveState(ByteBuffer buffer) {
+        SaveState.writeHeader(buffer);
+        buffer.putLong(this.cycles);
+        buffer.putLong(this.frames);
+        buffer.put(this.V);
+        buffer.putShort(this.I);
+        buffer.putShort(this.PC);
+        buffer.put(this.delayTimer);
+        buffer.put(this.soundTimer);
+        this.stack.save(buffer);
+        this.memory.save(buffer);
+        this.screenMemory.save(buffer);
+        buffer.putLong(this.random.getState());
+    }
+
+    /**
+     * Replace the complete machine state, see {@link SaveState} for the layout.
+     * Must be called from the emulation thread or while the interpreter is not
+     * running, see {@link #runOnFrameBoundary(Runnable)}. An interpreter halted
+     * by a fault is restarted; one stopped with {@link #stop()} stays stopped.
+     *
+     * @throws IllegalArgumentException if the buffer is not a valid save state,
+     *                                  in which case nothing is changed
+     */
+    public void restoreState(ByteBuffer buffer) {
+        SaveState.checkHeader(buffer);
+        buffer.position(buffer.position() + 8);
+        this.cycles = buffer.getLong();
+        this.frames = buffer.getLong();
+        buffer.get(this.V);
+        this.I = buffer.getShort();
+        this.PC = buffer.getShort();
+        this.delayTimer = buffer.get();
+        this.soundTimer = buffer.get();
+        this.stack.restore(buffer);
+        this.memory.restore(buffer);
+        this.screenMemory.restore(buffer);
+        this.random.setState(buffer.getLong());
+        this.fault.clear();
+        if (this.halted) {
+            this.halted = false;
+            this.running = true;
+        }
+        this.awaitedKey = NO_KEY;
+        this.idleLoopLength = 0;
+        this.shouldDraw = true;
+    }
+
+    private void executeCycle(int instructions) {
+        int cycle = instructions;
+        while (cycle > 0 && this.running) {
+            int executed = step(cycle);
+            cycle -= executed;
+            this.cycles += executed;
+            if (this.idleLoopLength != 0) {
+                int skipped = cycle - cycle % this.idleLoopLength;
+                cycle -= skipped;
+                this.cycles += skipped;
+                this.idleLoopLength = 0;
+            }
+        }
+    }
+
+    public void stop() {
+        this.running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of instructions executed since the start
+     */
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @return the number of 60Hz frames run since the start
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the instruction at the address, as the interpreter would execute it
+     */
+    Instruction instructionAt(int address) {
+        return this.memory.getInstruction(address);
+    }
+
+    /**
+     * @return the CXKK generator, whose seed and state can be read and restored
+     */
+    public XorShiftRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Execute a translated block, or a single instruction through the
+     * interpreter when no block is available
+     *
+     * @param budget maximum number of instructions to execute
+     * @return the number of instructions executed
+     */
+    private int step(int budget) {
+        int pc = this.PC & 0xFFFF;
+        if (pc > Memory.SIZE - 2) {
+            trap(Fault.Kind.FETCH, pc, (short) 0, pc);
+            return 0;
+        }
+        if (this.translationEnabled) {
+            BasicBlock block = this.translator.lookup(this.PC);
+            if (block != null) {
+                return executeBlock(block, budget);
+            }
         }
+        executeOperation();
+        return 1;
     }
 
-    private void executeCycle() {
-        int cycle = CYCLE_PER_TICK;
-        while (cycle > 0) {
-            executeOperation();
-            updateScreenIfNecessary();
-            decrementDelayTimer();
-            handleSound();
-            cycle--;
+    private int executeBlock(BasicBlock block, int budget) {
+        Instruction[] instructions = block.instructions;
+        CompiledBlock compiled = block.compiled;
+        if (compiled != null && budget >= instructions.length && !this.traceInstructions && !this.collectMetrics
+                && !this.profiling) {
+            return compiled.run(this);
         }
+        int count = Math.min(instructions.length, budget);
+        int executed = 0;
+        while (executed < count && !this.halted) {
+            execute(instructions[executed++]);
+        }
+        return executed;
     }
 
     private void updateScreenIfNecessary() {
         if (shouldDraw) {
             shouldDraw = false;
-            this.screen.draw(this.screenMemory.getActivePixels());
+            this.display.draw(this.screenMemory);
+            if (this.collectMetrics) {
+                this.metrics.screenUpdated();
+            }
         }
     }
 
-    private void decrementDelayTimer() {
-        if (this.delayTimer > 0) {
+    /**
+     * Both timers are unsigned 8 bit registers decremented at 60Hz until zero.
+     */
+    private void decrementTimers() {
+        if (this.delayTimer != 0) {
             this.delayTimer--;
         }
+        if (this.soundTimer != 0) {
+            this.soundTimer--;
+        }
     }
 
+    /**
+     * The tone plays while the sound timer is not zero. The sink is only told
+     * when that changes.
+     */
     private void handleSound() {
-        // TODO: implement sound operation
-    }
-
-    private void dump(short opCode) {
-        System.out.println("========== DUMP ==========");
-        System.out.println(String.format("PC: %d - 0x%04X", this.PC, this.PC));
-        System.out.println(String.format("I: %d - 0x%04X", this.I, this.I));
-        System.out.println(String.format("x: 0x%04X", getX(opCode)));
-        System.out.println(String.format("y: 0x%04X", getY(opCode)));
-        System.out.println(String.format("n: 0x%04X", getN(opCode)));
-        System.out.println(String.format("kk: 0x%04X", getKK(opCode)));
-        System.out.println(String.format("nnn: 0x%04X", getNNN(opCode)));
-        System.out.println("V: " + Arrays.toString(this.V));
-        this.stack.dump();
-        this.memory.dump();
-        System.out.println();
+        boolean playing = this.soundTimer != 0;
+        if (playing != this.soundPlaying) {
+            this.soundPlaying = playing;
+            this.sound.setPlaying(playing);
+        }
     }
 
     /**
      * Execute the hex operations of CHIP-8
      */
     private void executeOperation() {
-        short opCode = (short) ((short) (this.memory.getWord(this.PC) << 8) | (this.memory.getWord(this.PC + 1) & 0x00FF));
-        int type = (opCode & 0xF000);
+        execute(this.memory.getInstruction(this.PC));
+    }
 
-        System.out.println(String.format("Instruction: 0x%04X", opCode));
-        System.out.println(String.format("Sub-type: 0x%04X", type));
+    private void execute(Instruction instruction) {
+        if (this.traceInstructions) {
+            this.tracer.instruction(this.PC, instruction.opCode, this.I, this.delayTimer, this.soundTimer, this.V);
+        }
 
-        dump(opCode);
+        if (this.collectMetrics) {
+            this.metrics.instruction(instruction.opCode);
+        }
 
+        short address = this.PC;
         this.PC += 2;
 
-        try {
-            switch (type) {
-                case 0x0000:
-                    opType0x0(opCode);
-                    break;
-                case 0x1000:
-                    opType0x1(opCode);
-                    break;
-                case 0x2000:
-                    opType0x2(opCode);
-                    break;
-                case 0x3000:
-                    opType0x3(opCode);
-                    break;
-                case 0x4000:
-                    opType0x4(opCode);
-                    break;
-                case 0x5000:
-                    opType0x5(opCode);
-                    break;
-                case 0x6000:
-                    opType0x6(opCode);
-                    break;
-                case 0x7000:
-                    opType0x7(opCode);
-                    break;
-                case 0x8000:
-                    opType0x8(opCode);
-                    break;
-                case 0x9000:
-                    opType0x9(opCode);
-                    break;
-                case 0xA000:
-                    opType0xA(opCode);
-                    break;
-                case 0xB000:
-                    opType0xB(opCode);
-                    break;
-                case 0xC000:
-                    opType0xC(opCode);
-                    break;
-                case 0xD000:
-                    opType0xD(opCode);
-                    break;
-                case 0xE000:
-                    opType0xE(opCode);
-                    break;
-                case 0xF000:
-                    opType0xF(opCode);
-                    break;
-                default:
-                    throw new InvalidHexOperation(String.format("Invalid hex operation: 0x%04X", opCode));
-            }
+        instruction.operation.execute(this, instruction);
 
-            dump(opCode);
-
-        } catch (InvalidHexOperation e) {
-            e.printStackTrace();
+        if (this.profiling) {
+            this.profiler.executed(address, this.PC);
         }
     }
 
     /**
-     * 0x0 operation type
+     * Set the program counter past the instruction about to run, for code
+     * compiled by {@link BlockCompiler}.
+     */
+    void setProgramCounter(int pc) {
+        this.PC = (short) pc;
+    }
+
+    /**
+     * 00E0 - CLS - Clear the display.
      *
-     * @param opCode 16bit operation code
+     * @param instruction decoded instruction
      */
-    private void opType0x0(int opCode) {
-        switch (opCode) {
-            // CLS - clear the display
-            case 0x00E0:
-                this.screenMemory.clear();
-                break;
-            // Return - Return from a subroutine. The interpreter sets the program counter
-            // to the address at the top of the stack, then subtracts 1 from the stack
-            // pointer.
-            case 0x00EE:
-                this.PC = this.stack.pop();
-                break;
-            // 0x0NNN - SYS addr
-            // Jump to a machine code routine at nnn. this instruction is only used on the
-            // old computers on which Chip-8 was originally implemented. It is ignored by
-            // modern interpreters.
-            default:
-                break;
+    void op00E0(Instruction instruction) {
+        this.screenMemory.clear();
+    }
+
+    /**
+     * 00EE - RET - Return from a subroutine. The interpreter sets the program
+     * counter to the address at the top of the stack, then subtracts 1 from the
+     * stack pointer.
+     *
+     * @param instruction decoded instruction
+     */
+    void op00EE(Instruction instruction) {
+        if (this.stack.isEmpty()) {
+            trap(Fault.Kind.STACK_UNDERFLOW, instruction, 0);
+            return;
         }
+        this.PC = this.stack.pop();
+    }
+
+    /**
+     * 0nnn - SYS addr - Jump to a machine code routine at nnn. This instruction is
+     * only used on the old computers on which Chip-8 was originally implemented. It
+     * is ignored by modern interpreters.
+     *
+     * @param instruction decoded instruction
+     */
+    void op0nnn(Instruction instruction) {
     }
 
     /**
      * 1nnn - Jump to location nnn. The interpreter sets the program counter to nnn
      *
-     * @param opCode
+     * @param instruction decoded instruction
+     */
+    void op1nnn(Instruction instruction) {
+        short address = (short) (this.PC - 2);
+        this.PC = instruction.nnn;
+        if (this.idleLoopSkipping) {
+            detectIdleLoop(address);
+        }
+    }
+
+    /**
+     * Recognise the jump at the address as closing a wait loop that has
+     * reached a fixed point: every further iteration leaves the machine exactly
+     * as it is until the next timer tick. Either a jump to itself, or
+     *
+     * <pre>
+     *  loop: LD Vx, DT
+     *        SE Vx, kk
+     *        JP loop
+     * </pre>
+     * <p>
+     * with Vx already equal to DT and different from kk.
+     * </p>
      */
-    private void opType0x1(int opCode) {
-        short nnn = getNNN(opCode);
-        this.PC = nnn;
+    private void detectIdleLoop(short address) {
+        if (this.PC == address) {
+            this.idleLoopLength = 1;
+        } else if (this.PC == address - 4) {
+            Instruction load = this.memory.getInstruction(this.PC);
+            Instruction skip = this.memory.getInstruction(this.PC + 2);
+            if (load.operation == Operation.LD_VX_DT && skip.operation == Operation.SE_VX_BYTE && skip.x == load.x
+                    && this.V[load.x] == this.delayTimer && this.V[load.x] != skip.kk) {
+                this.idleLoopLength = 3;
+            }
+        }
     }
 
     /**
      * 2nnn - Call subroutine at NNN The interpreter increments the stack pointer,
      * then puts the current PC on the top of the stack. The PC is then set to nnn.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0x2(int opCode) {
-        short nnn = getNNN(opCode);
+    void op2nnn(Instruction instruction) {
+        if (this.stack.isFull()) {
+            trap(Fault.Kind.STACK_OVERFLOW, instruction, 0);
+            return;
+        }
         this.stack.put(this.PC);
-        this.PC = nnn;
+        this.PC = instruction.nnn;
     }
 
     /**
@@ -278,12 +664,10 @@ public class Chip8 {
      * compares register Vx to kk, and if they are equal, increments the program
      * counter by 2.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0x3(int opCode) {
-        byte x = getX(opCode);
-        byte kk = getKK(opCode);
-        if (this.V[x] == kk) {
+    void op3xkk(Instruction instruction) {
+        if (this.V[instruction.x] == instruction.kk) {
             this.PC += 2;
         }
     }
@@ -293,12 +677,10 @@ public class Chip8 {
      * compares register Vx to kk, and if they are not equal, increments the program
      * counter by 2.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0x4(int opCode) {
-        int x = getX(opCode);
-        int kk = getKK(opCode);
-        if (this.V[x] != kk) {
+    void op4xkk(Instruction instruction) {
+        if (this.V[instruction.x] != instruction.kk) {
             this.PC += 2;
         }
     }
@@ -308,13 +690,10 @@ public class Chip8 {
      * register Vx to register Vy, and if they are equal, increments the program
      * counter by 2.
      *
-     * @param opCode
-     * @throws InvalidHexOperation
+     * @param instruction decoded instruction
      */
-    private void opType0x5(int opCode) throws InvalidHexOperation {
-        byte x = getX(opCode);
-        byte y = getY(opCode);
-        if (this.V[x] == this.V[y]) {
+    void op5xy0(Instruction instruction) {
+        if (this.V[instruction.x] == this.V[instruction.y]) {
             this.PC += 2;
         }
     }
@@ -323,123 +702,142 @@ public class Chip8 {
      * 6xkk - LD Vx, byte. Set Vx = kk. The interpreter puts the value kk into
      * register Vx.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0x6(int opCode) {
-        byte x = getX(opCode);
-        this.V[x] = getKK(opCode);
+    void op6xkk(Instruction instruction) {
+        this.V[instruction.x] = instruction.kk;
     }
 
     /**
      * 7xkk - ADD Vx, byte. Set Vx = Vx + kk. Adds the value kk to the value of
      * register Vx, then stores the result in Vx.
      *
-     * @param opCode
-     */
-    private void opType0x7(int opCode) {
-        byte x = getX(opCode);
-        byte kk = getKK(opCode);
-        this.V[x] += kk;
-    }
-
-    /**
-     * 0x8 type operations
-     *
-     * @param opCode
-     * @throws InvalidHexOperation
-     */
-    private void opType0x8(int opCode) throws InvalidHexOperation {
-        byte x = getX(opCode);
-        byte y = getY(opCode);
-        byte n = getN(opCode);
-        switch (n) {
-            // 8xy0 - LD Vx, Vy Set Vx = Vy.
-            // Stores the value of register Vy in register Vx.
-            case 0x0:
-                this.V[x] = this.V[y];
-                break;
-            // 8xy1 - OR Vx, Vy
-            // Set Vx = Vx OR Vy. Performs a bitwise OR on the values of Vx and Vy, then
-            // stores the result in Vx. A bitwise OR compares the corrseponding bits from
-            // two values, and if either bit is 1, then the same bit in the result is also
-            // 1. Otherwise, it is 0.
-            case 0x1:
-                this.V[x] |= this.V[y];
-                break;
-            // 8xy2 - AND Vx, Vy
-            // Set Vx = Vx AND Vy. Performs a bitwise AND on the values of Vx and Vy, then
-            // stores the result in Vx. A bitwise AND compares the corrseponding bits from
-            // two values, and if both bits are 1, then the same bit in the result is also
-            // 1. Otherwise, it is 0.
-            case 0x2:
-                this.V[x] &= this.V[y];
-                break;
-            // 8xy3 - XOR Vx, Vy
-            // Set Vx = Vx XOR Vy. Performs a bitwise exclusive OR on the values of Vx and
-            // Vy, then stores the result in Vx. An exclusive OR compares the corrseponding
-            // bits from two values, and if the bits are not both the same, then the
-            // corresponding bit in the result is set to 1. Otherwise, it is 0.
-            case 0x3:
-                this.V[x] ^= this.V[y];
-                break;
-            // 8xy4 - ADD Vx, Vy
-            // Set Vx = Vx + Vy, set VF = carry. The values of Vx and Vy are added together.
-            // If the result is greater than 8 bits (i.e., > 255,) VF is set to 1, otherwise
-            // 0. Only the lowest 8 bits of the result are kept, and stored in Vx.
-            case 0x4:
-                int sum = (this.V[x] + this.V[y]);
-                this.V[0xF] = 0;
-                if (sum > 0xFF) { // sum > 255
-                    this.V[0xF] = 1;
-                }
-                this.V[x] = (byte) sum;
-                break;
-            // 8xy5 - SUB Vx, Vy
-            // Set Vx = Vx - Vy, set VF = NOT borrow.
-            // If Vx > Vy, then VF is set to 1, otherwise 0. Then Vy is subtracted from Vx,
-            // and the results stored in Vx.
-            case 0x5:
-                this.V[0xF] = 0;
-                if (this.V[x] > this.V[y]) {
-                    this.V[0xF] = 1;
-                }
-                this.V[x] -= this.V[y];
-                break;
-            // 8xy6 - SHR Vx {, Vy}
-            // Set Vx = Vx SHR 1.
-            // If the least-significant bit of Vx is 1, then VF is set to 1, otherwise 0.
-            // Then Vx is divided by 2.
-            case 0x6:
-                this.V[0xF] = (byte) (this.V[x] & 0xFE);
-                this.V[x] >>= 1;
-//                byte leastSignificant = (byte)(this.V[x] & (byte)0x01);
-//                this.V[0xF] = leastSignificant; //Set VF to the least significant bit of Vx before the shift.
-//
-//                //We have to cast it to unsigned int to work properly. If we don't do it, Bitwise operation does the cast
-//                //with sign, so the result is incorrect.
-//                int int_vx = (this.V[x]&0xFF);
-//                this.V[x] = (byte) (int_vx >>> 1); // >>> operator means right shift one bit without sign propagation.
-                break;
-            // 8xy7 - SUBN Vx, Vy
-            // Set Vx = Vy - Vx, set VF = NOT borrow.
-            // If Vy > Vx, then VF is set to 1, otherwise 0. Then Vx is subtracted from Vy,
-            // and the results stored in Vx.
-            case 0x7:
-                this.V[0xF] = 0;
-                if (this.V[y] > this.V[x]) {
-                    this.V[0xF] = 1;
-                }
-                this.V[x] = (byte) (this.V[y] - this.V[x]);
-                break;
-            // 8xyE - SHL Vx {, Vy}
-            // Set Vx = Vx SHL 1.
-            // If the most-significant bit of Vx is 1, then VF is set to 1, otherwise to 0.
-            // Then Vx is multiplied by 2.
-            case 0xE:
-                this.V[0xF] = (byte) ((this.V[x] & 0x7F) >> 7);
-                this.V[x] <<= 1;
-                break;
+     * @param instruction decoded instruction
+     */
+    void op7xkk(Instruction instruction) {
+        this.V[instruction.x] += instruction.kk;
+    }
+
+    /**
+     * 8xy0 - LD Vx, Vy Set Vx = Vy. Stores the value of register Vy in register Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy0(Instruction instruction) {
+        this.V[instruction.x] = this.V[instruction.y];
+    }
+
+    /**
+     * 8xy1 - OR Vx, Vy - Set Vx = Vx OR Vy. Performs a bitwise OR on the values of
+     * Vx and Vy, then stores the result in Vx. A bitwise OR compares the
+     * corrseponding bits from two values, and if either bit is 1, then the same bit
+     * in the result is also 1. Otherwise, it is 0.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy1(Instruction instruction) {
+        this.V[instruction.x] |= this.V[instruction.y];
+    }
+
+    /**
+     * 8xy2 - AND Vx, Vy - Set Vx = Vx AND Vy. Performs a bitwise AND on the values
+     * of Vx and Vy, then stores the result in Vx. A bitwise AND compares the
+     * corrseponding bits from two values, and if both bits are 1, then the same bit
+     * in the result is also 1. Otherwise, it is 0.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy2(Instruction instruction) {
+        this.V[instruction.x] &= this.V[instruction.y];
+    }
+
+    /**
+     * 8xy3 - XOR Vx, Vy - Set Vx = Vx XOR Vy. Performs a bitwise exclusive OR on
+     * the values of Vx and Vy, then stores the result in Vx. An exclusive OR
+     * compares the corrseponding bits from two values, and if the bits are not both
+     * the same, then the corresponding bit in the result is set to 1. Otherwise, it
+     * is 0.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy3(Instruction instruction) {
+        this.V[instruction.x] ^= this.V[instruction.y];
+    }
+
+    /**
+     * 8xy4 - ADD Vx, Vy - Set Vx = Vx + Vy, set VF = carry. The values of Vx and
+     * Vy are added together. If the result is greater than 8 bits (i.e., > 255,) VF
+     * is set to 1, otherwise 0. Only the lowest 8 bits of the result are kept, and
+     * stored in Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy4(Instruction instruction) {
+        int x = instruction.x;
+        int sum = (this.V[x] + this.V[instruction.y]);
+        this.V[0xF] = 0;
+        if (sum > 0xFF) { // sum > 255
+            this.V[0xF] = 1;
+        }
+        this.V[x] = (byte) sum;
+    }
+
+    /**
+     * 8xy5 - SUB Vx, Vy - Set Vx = Vx - Vy, set VF = NOT borrow. If Vx > Vy, then
+     * VF is set to 1, otherwise 0. Then Vy is subtracted from Vx, and the results
+     * stored in Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy5(Instruction instruction) {
+        int x = instruction.x;
+        int y = instruction.y;
+        this.V[0xF] = 0;
+        if (this.V[x] > this.V[y]) {
+            this.V[0xF] = 1;
         }
+        this.V[x] -= this.V[y];
+    }
+
+    /**
+     * 8xy6 - SHR Vx {, Vy} - Set Vx = Vx SHR 1. If the least-significant bit of Vx
+     * is 1, then VF is set to 1, otherwise 0. Then Vx is divided by 2.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy6(Instruction instruction) {
+        int x = instruction.x;
+        this.V[0xF] = (byte) (this.V[x] & 0xFE);
+        this.V[x] >>= 1;
+    }
+
+    /**
+     * 8xy7 - SUBN Vx, Vy - Set Vx = Vy - Vx, set VF = NOT borrow. If Vy > Vx, then
+     * VF is set to 1, otherwise 0. Then Vx is subtracted from Vy, and the results
+     * stored in Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xy7(Instruction instruction) {
+        int x = instruction.x;
+        int y = instruction.y;
+        this.V[0xF] = 0;
+        if (this.V[y] > this.V[x]) {
+            this.V[0xF] = 1;
+        }
+        this.V[x] = (byte) (this.V[y] - this.V[x]);
+    }
+
+    /**
+     * 8xyE - SHL Vx {, Vy} - Set Vx = Vx SHL 1. If the most-significant bit of Vx
+     * is 1, then VF is set to 1, otherwise to 0. Then Vx is multiplied by 2.
+     *
+     * @param instruction decoded instruction
+     */
+    void op8xyE(Instruction instruction) {
+        int x = instruction.x;
+        this.V[0xF] = (byte) ((this.V[x] & 0x7F) >> 7);
+        this.V[x] <<= 1;
     }
 
     /**
@@ -447,13 +845,10 @@ public class Chip8 {
      * Vy are compared, and if they are not equal, the program counter is increased
      * by 2.
      *
-     * @param opCode
-     * @throws InvalidHexOperation
+     * @param instruction decoded instruction
      */
-    private void opType0x9(int opCode) {
-        byte x = getX(opCode);
-        byte y = getY(opCode);
-        if (this.V[x] != this.V[y]) {
+    void op9xy0(Instruction instruction) {
+        if (this.V[instruction.x] != this.V[instruction.y]) {
             this.PC += 2;
         }
     }
@@ -461,22 +856,20 @@ public class Chip8 {
     /**
      * Annn - LD I, addr - Set I = nnn. The value of register I is set to nnn.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0xA(int opCode) {
-        short nnn = getNNN(opCode);
-        this.I = nnn;
+    void opAnnn(Instruction instruction) {
+        this.I = instruction.nnn;
     }
 
     /**
      * Bnnn - JP V0, addr - Jump to location nnn + V0. The program counter is set to
      * nnn plus the value of V0.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0xB(int opCode) {
-        short nnn = getNNN(opCode);
-        this.PC = (short) (nnn + this.V[0]);
+    void opBnnn(Instruction instruction) {
+        this.PC = (short) (instruction.nnn + this.V[0]);
     }
 
     /**
@@ -486,13 +879,10 @@ public class Chip8 {
      * with the value kk. The results are stored in Vx. See instruction 8xy2 for
      * more information on AND.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0xC(int opCode) {
-        byte x = getX(opCode);
-        byte kk = getKK(opCode);
-        byte random = (byte) (Math.random() * 256);
-        this.V[x] = (byte) (random & kk);
+    void opCxkk(Instruction instruction) {
+        this.V[instruction.x] = (byte) (this.random.nextByte() & instruction.kk);
     }
 
     /**
@@ -508,109 +898,231 @@ public class Chip8 {
      * information on XOR, and section 2.4, Display, for more information on the
      * Chip-8 screen and sprites.
      *
-     * @param opCode
+     * @param instruction decoded instruction
      */
-    private void opType0xD(int opCode) {
-        byte x = getX(opCode);
-        byte y = getY(opCode);
-        byte n = getN(opCode);
+    void opDxyn(Instruction instruction) {
+        int x = instruction.x;
+        int y = instruction.y;
+        int n = instruction.n;
+        if (outOfMemory(n)) {
+            trap(Fault.Kind.MEMORY_READ, instruction, this.I & 0xFFFF);
+            return;
+        }
 
         this.V[0xF] = 0;
 
         for (int row = 0; row < n; row++) {
-            int sprite = Byte.toUnsignedInt(this.memory.getWord(this.I + row));
-//            int sprite = this.memory.getWord(this.I + row);
-            for (int col = 0; col < 8; col++) {
-                if ((sprite & 0x80) > 0) {
-                    if (this.screenMemory.setPixel(this.V[x] + col, this.V[y] + row)) {
-                        this.V[0xF] = 1;
-                    }
-                }
-                sprite <<= 1;
+            int sprite = this.memory.getWord(this.I + row);
+            if (this.screenMemory.drawSprite(this.V[x], this.V[y] + row, sprite)) {
+                this.V[0xF] = 1;
             }
         }
         this.shouldDraw = true;
     }
 
-    private void opType0xE(int opCode) {
-        byte x = getX(opCode);
-        byte kk = getKK(opCode);
+    /**
+     * Ex9E - SKP Vx - Skip next instruction if key with the value of Vx is pressed.
+     *
+     * @param instruction decoded instruction
+     */
+    void opEx9E(Instruction instruction) {
+        if (this.keyboard.isKeyPressed(this.V[instruction.x])) {
+            this.PC += 2;
+        }
+    }
 
-        switch (kk) {
-            case (byte) 0x009E:
-                if (this.keyboard.isKeyPressed(this.V[x])) {
-                    this.PC += 2;
-                }
-                break;
-            case (byte) 0x00A1:
-                if (!this.keyboard.isKeyPressed(this.V[x])) {
-                    this.PC += 2;
-                }
-                break;
-        }
-    }
-
-    private void opType0xF(int opCode) {
-        byte x = getX(opCode);
-        byte kk = getKK(opCode);
-        switch (kk) {
-            case 0x07:
-                this.V[x] = this.delayTimer;
-                break;
-            case 0x0A:
-                // keyboard
-                byte keyPressed = this.keyboard.waitForKeyPressed();
-                this.V[x] = keyPressed;
-                break;
-            case 0x15:
-                this.delayTimer = this.V[x];
-                break;
-            case 0x18:
-                this.soundTimer = this.V[x];
-                break;
-            case 0x1E:
-                this.I += this.V[x];
-                break;
-            case 0x29:
-                this.I = (short) (this.V[x] * 5);
-                break;
-            case 0x33:
-                this.memory.writeWord(this.I, (byte) (this.V[x] / 100)); // LD B, Vx
-                this.memory.writeWord(this.I + 1, (byte) ((this.V[x] % 100) / 10));
-                this.memory.writeWord(this.I + 2, (byte) (this.V[x] % 10));
-                break;
-            case 0x55:
-                for (int i = 0; i <= x; i++) {
-                    this.memory.writeWord(this.I + i, this.V[i]);
-                }
-                break;
-            case 0x65:
-                for (int i = 0; i <= x; i++) {
-                    this.V[i] = this.memory.getWord(this.I + i);
-                }
-                break;
-            default:
-                throw new InvalidHexOperation(String.format("Invalid hex operation: 0x%04X", opCode));
+    /**
+     * ExA1 - SKNP Vx - Skip next instruction if key with the value of Vx is not
+     * pressed.
+     *
+     * @param instruction decoded instruction
+     */
+    void opExA1(Instruction instruction) {
+        if (!this.keyboard.isKeyPressed(this.V[instruction.x])) {
+            this.PC += 2;
         }
     }
 
-    private short getNNN(int opCode) {
-        return (short) (opCode & 0x0FFF);
+    /**
+     * Fx07 - LD Vx, DT - Set Vx = delay timer value.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx07(Instruction instruction) {
+        this.V[instruction.x] = this.delayTimer;
+    }
+
+    /**
+     * Fx0A - LD Vx, K - Wait for a key press, store the value of the key in Vx.
+     * <p>
+     * The thread parks until a key is pressed, or released again if
+     * {@link #setWaitForKeyRelease(boolean)} is set. If it is interrupted the
+     * interpreter stops, with the PC left on this instruction.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx0A(Instruction instruction) {
+        if (!this.blockingKeyWait) {
+            pollKey(instruction);
+            return;
+        }
+        long start = this.collectMetrics ? System.nanoTime() : 0;
+        try {
+            this.V[instruction.x] = this.waitForKeyRelease
+                    ? this.keyboard.waitForKeyReleased()
+                    : this.keyboard.waitForKeyPressed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.PC -= 2;
+            stop();
+        }
+        if (this.collectMetrics) {
+            this.metrics.keyboardWaited(System.nanoTime() - start);
+        }
     }
 
-    private byte getKK(int opCode) {
-        return (byte) (opCode & 0x00FF);
+    /**
+     * Non-blocking FX0A: complete with the lowest pressed key (on its release if
+     * waiting for releases), otherwise leave the PC on this instruction.
+     */
+    private void pollKey(Instruction instruction) {
+        int pressed = this.keyboard.getPressedMask();
+        if (this.awaitedKey == NO_KEY && pressed != 0) {
+            this.awaitedKey = Integer.numberOfTrailingZeros(pressed);
+        }
+        if (this.awaitedKey == NO_KEY
+                || (this.waitForKeyRelease && (pressed & (1 << this.awaitedKey)) != 0)) {
+            this.PC -= 2;
+            if (this.idleLoopSkipping) {
+                this.idleLoopLength = 1;
+            }
+            return;
+        }
+        this.V[instruction.x] = (byte) this.awaitedKey;
+        this.awaitedKey = NO_KEY;
     }
 
-    private byte getN(int opCode) {
-        return (byte) (opCode & 0x000F);
+    /**
+     * Fx15 - LD DT, Vx - Set delay timer = Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx15(Instruction instruction) {
+        this.delayTimer = this.V[instruction.x];
     }
 
-    private byte getX(int opCode) {
-        return (byte) ((opCode & 0x0F00) >>> 8);
+    /**
+     * Fx18 - LD ST, Vx - Set sound timer = Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx18(Instruction instruction) {
+        this.soundTimer = this.V[instruction.x];
     }
 
-    private byte getY(int opCode) {
-        return (byte) ((opCode & 0x00F0) >>> 4);
+    /**
+     * Fx1E - ADD I, Vx - Set I = I + Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx1E(Instruction instruction) {
+        this.I += this.V[instruction.x];
+    }
+
+    /**
+     * Fx29 - LD F, Vx - Set I = location of sprite for digit Vx.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx29(Instruction instruction) {
+        this.I = (short) (this.V[instruction.x] * 5);
+    }
+
+    /**
+     * Fx33 - LD B, Vx - Store BCD representation of Vx in memory locations I, I+1,
+     * and I+2.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx33(Instruction instruction) {
+        if (outOfMemory(3)) {
+            trap(Fault.Kind.MEMORY_WRITE, instruction, this.I & 0xFFFF);
+            return;
+        }
+        int x = instruction.x;
+        this.memory.writeWord(this.I, (byte) (this.V[x] / 100));
+        this.memory.writeWord(this.I + 1, (byte) ((this.V[x] % 100) / 10));
+        this.memory.writeWord(this.I + 2, (byte) (this.V[x] % 10));
+    }
+
+    /**
+     * Fx55 - LD [I], Vx - Store registers V0 through Vx in memory starting at
+     * location I.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx55(Instruction instruction) {
+        if (outOfMemory(instruction.x + 1)) {
+            trap(Fault.Kind.MEMORY_WRITE, instruction, this.I & 0xFFFF);
+            return;
+        }
+        for (int i = 0; i <= instruction.x; i++) {
+            this.memory.writeWord(this.I + i, this.V[i]);
+        }
+    }
+
+    /**
+     * Fx65 - LD Vx, [I] - Read registers V0 through Vx from memory starting at
+     * location I.
+     *
+     * @param instruction decoded instruction
+     */
+    void opFx65(Instruction instruction) {
+        if (outOfMemory(instruction.x + 1)) {
+            trap(Fault.Kind.MEMORY_READ, instruction, this.I & 0xFFFF);
+            return;
+        }
+        for (int i = 0; i <= instruction.x; i++) {
+            this.V[i] = this.memory.getWord(this.I + i);
+        }
+    }
+
+    /**
+     * Any operation code that is not part of the CHIP-8 instruction set.
+     *
+     * @param instruction decoded instruction
+     */
+    void opInvalid(Instruction instruction) {
+        trap(Fault.Kind.INVALID_OPCODE, instruction, 0);
+    }
+
+    /**
+     * @return true if the given number of bytes from I are not all in memory
+     */
+    private boolean outOfMemory(int length) {
+        return (this.I & 0xFFFF) + length > Memory.SIZE;
+    }
+
+    /**
+     * Record a fault of the instruction being executed, then halt or let the
+     * handler skip the instruction, according to the policy for its kind.
+     * Halting faults are logged, resumed ones only at debug level.
+     */
+    private void trap(Fault.Kind kind, Instruction instruction, int address) {
+        trap(kind, (this.PC - 2) & 0xFFFF, instruction.opCode, address);
+    }
+
+    private void trap(Fault.Kind kind, int pc, short opCode, int address) {
+        this.fault.record(kind, pc, opCode, address);
+        boolean halt = kind == Fault.Kind.FETCH || this.faultPolicies[kind.ordinal()] == FaultPolicy.HALT;
+        Tracer.Level level = halt ? Tracer.Level.ERROR : Tracer.Level.DEBUG;
+        if (this.tracer.isEnabled(level, Tracer.Category.CPU)) {
+            this.tracer.log(level, Tracer.Category.CPU, this.fault.toString());
+        }
+        if (halt) {
+            this.PC = (short) pc;
+            this.halted = true;
+            stop();
+        }
     }
 }
@@ -0,0 +1,68 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Management interface of a running {@link Chip8}, see {@link Metrics}.
+ * <p>
+ * Histograms are arrays of power of two buckets: element i counts the
+ * durations from 2^i up to 2^(i+1) nanoseconds.
+ * </p>
+ */
+public interface Chip8MXBean {
+
+    /**
+     * @return instructions executed since the start
+     */
+    long getInstructions();
+
+    /**
+     * @return instructions executed per second, measured over the last second
+     */
+    double getInstructionsPerSecond();
+
+    /**
+     * @return instructions executed per family, indexed by the high nibble of
+     * the operation code
+     */
+    long[] getInstructionFamilyCounts();
+
+    long getFrames();
+
+    long[] getFrameTimeHistogram();
+
+    double getFrameTimeMeanMicros();
+
+    double getFrameTimeMaxMicros();
+
+    /**
+     * @return number of DXYN sprite draws
+     */
+    long getSpriteDraws();
+
+    /**
+     * @return number of frames presented to the display
+     */
+    long getScreenUpdates();
+
+    /**
+     * @return number of frames painted by the Swing screen, fewer than the
+     * screen updates when frames are dropped to keep up with the monitor
+     */
+    long getPaints();
+
+    /**
+     * @return time taken by the Swing screen to paint a frame on the EDT
+     */
+    long[] getRenderTimeHistogram();
+
+    double getRenderTimeMeanMicros();
+
+    double getRenderTimeMaxMicros();
+
+    /**
+     * @return number of FX0A waits that parked the emulation thread
+     */
+    long getKeyboardWaits();
+
+    double getKeyboardWaitMillis();
+
+}
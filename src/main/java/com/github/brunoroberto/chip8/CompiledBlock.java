@@ -0,0 +1,16 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * A {@link BasicBlock} compiled to JVM bytecode by {@link BlockCompiler}.
+ */
+interface CompiledBlock {
+
+    /**
+     * Execute the whole block, stopping after an instruction that halts the
+     * interpreter. Instructions are not traced, profiled nor counted in
+     * metrics.
+     *
+     * @return the number of instructions executed
+     */
+    int run(Chip8 chip8);
+}
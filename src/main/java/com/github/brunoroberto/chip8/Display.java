@@ -0,0 +1,19 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Output sink for the CHIP-8 framebuffer.
+ * <p>
+ * Keeps {@link Chip8} free from any windowing toolkit, so the interpreter can
+ * run with a Swing {@link Screen} or with no display at all.
+ * </p>
+ */
+public interface Display {
+
+    /**
+     * Called by the interpreter whenever the framebuffer has changed.
+     *
+     * @param screenMemory the current framebuffer
+     */
+    void draw(ScreenMemory screenMemory);
+
+}
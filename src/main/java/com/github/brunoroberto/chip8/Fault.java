@@ -0,0 +1,96 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * The last CPU fault of a {@link Chip8}: what went wrong, at which address and
+ * in which instruction.
+ * <p>
+ * A single instance per interpreter is overwritten on every fault, so faulting
+ * never allocates nor builds a stack trace, however often a broken ROM
+ * faults. What happens next is decided by the {@link FaultPolicy} of the kind
+ * of fault, see {@link Chip8#setFaultPolicy(Kind, FaultPolicy)}.
+ * </p>
+ */
+public final class Fault {
+
+    public enum Kind {
+        /** an operation code that is not a CHIP-8 instruction */
+        INVALID_OPCODE,
+        /** a call with the 16 levels of the stack in use */
+        STACK_OVERFLOW,
+        /** a return with an empty stack */
+        STACK_UNDERFLOW,
+        /** a DXYN or FX65 reading past the end of memory */
+        MEMORY_READ,
+        /** a FX33 or FX55 writing past the end of memory */
+        MEMORY_WRITE,
+        /** the program counter left memory; always halts */
+        FETCH
+    }
+
+    private Kind kind;
+    private int pc;
+    private short opCode;
+    private int address;
+    private long count;
+
+    void record(Kind kind, int pc, short opCode, int address) {
+        this.kind = kind;
+        this.pc = pc;
+        this.opCode = opCode;
+        this.address = address;
+        this.count++;
+    }
+
+    void clear() {
+        this.kind = null;
+        this.count = 0;
+    }
+
+    /**
+     * @return true if the interpreter faulted at least once
+     */
+    public boolean isPresent() {
+        return this.kind != null;
+    }
+
+    /**
+     * @return the kind of the last fault, null if none
+     */
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * @return the address of the faulting instruction
+     */
+    public int getPC() {
+        return this.pc;
+    }
+
+    public short getOpCode() {
+        return this.opCode;
+    }
+
+    /**
+     * @return the memory address accessed by the faulting instruction, if any
+     */
+    public int getAddress() {
+        return this.address;
+    }
+
+    /**
+     * @return the number of faults since the start, including resumed ones
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    @Override
+    public String toString() {
+        if (this.kind == null) {
+            return "no fault";
+        }
+        return String.format("%s at 0x%03X, opcode 0x%04X, address 0x%04X", this.kind, this.pc, this.opCode,
+                this.address);
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * What the interpreter does after a {@link Fault}.
+ */
+public enum FaultPolicy {
+
+    /**
+     * Stop the interpreter, with the program counter on the faulting
+     * instruction.
+     */
+    HALT,
+
+    /**
+     * Skip the faulting instruction and go on with the next one: an invalid
+     * operation code, a call or return the stack cannot take, or a memory
+     * access out of range has no effect.
+     */
+    RESUME
+}
@@ -0,0 +1,57 @@
+package com.github.brunoroberto.chip8;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer handing complete frames from the emulation thread to
+ * the painting thread.
+ * <p>
+ * The producer always owns one buffer (back) and the consumer another
+ * (front); the third (middle) holds the latest published frame. Publishing
+ * fills the back buffer and swaps it with the middle one; taking swaps the
+ * middle buffer with the front one if a newer frame was published since. Each
+ * swap is a single atomic exchange of the packed middle index and a fresh
+ * flag, so neither side ever waits for the other, the consumer never sees a
+ * frame being written, and frames published faster than they are taken are
+ * simply replaced by newer ones.
+ * </p>
+ */
+final class FrameExchange {
+
+    private static final int INDEX = 0x3;
+    private static final int FRESH = 0x4;
+
+    private final long[][] buffers = new long[3][ScreenMemory.ROWS];
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    private int back = 0; // producer only
+    private int front = 2; // consumer only
+
+    /**
+     * Copy the framebuffer and make it the latest frame. Producer thread only.
+     */
+    void publish(ScreenMemory screenMemory) {
+        screenMemory.copyRows(this.buffers[this.back]);
+        this.back = this.middle.getAndSet(this.back | FRESH) & INDEX;
+    }
+
+    /**
+     * @return true if a frame was published since the last {@link #take()}
+     */
+    boolean hasFresh() {
+        return (this.middle.get() & FRESH) != 0;
+    }
+
+    /**
+     * Move to the latest published frame, if there is a newer one. Consumer
+     * thread only.
+     *
+     * @return the rows of the latest frame, valid until the next call
+     */
+    long[] take() {
+        if (hasFresh()) {
+            this.front = this.middle.getAndSet(this.front) & INDEX;
+        }
+        return this.buffers[this.front];
+    }
+}
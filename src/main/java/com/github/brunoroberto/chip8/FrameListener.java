@@ -0,0 +1,11 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Notified by {@link Chip8} on the emulation thread at the end of every 60Hz
+ * frame, after the timers ticked and the screen was presented.
+ */
+public interface FrameListener {
+
+    void frameCompleted(Chip8 chip8);
+
+}
@@ -0,0 +1,310 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link Display} streaming the framebuffer to remote viewers over TCP, see
+ * {@link FrameViewer}.
+ * <p>
+ * Protocol, big endian. On connection the server sends a hello: the magic
+ * {@code "C8FB"}, a version byte and a byte set to 1 if this viewer controls
+ * the keyboard. Then it sends frames as row deltas: an int whose bit n is set
+ * when row n changed since the last frame sent to this viewer, followed by
+ * the 64 pixels of each of those rows as a long, top row first. The first
+ * frame has every row. The viewer in control sends key events as two bytes:
+ * the key (0x0-0xF) and 1 for pressed or 0 for released. Control goes to the
+ * first viewer that connects while no viewer has it, and its keys are released
+ * when it disconnects.
+ * </p>
+ * <p>
+ * The emulation thread only publishes the rows into an atomic array under a
+ * sequence number and wakes the server thread; it never touches a socket. A
+ * single server thread multiplexes every viewer with a selector and writes
+ * from direct buffers. A viewer whose socket is not drained yet gets no new
+ * frame: when it catches up it gets one delta to the latest frame, so slow
+ * viewers see fewer frames and never slow down the interpreter.
+ * </p>
+ */
+public final class FrameServer implements Display, Closeable {
+
+    public static final int MAGIC = 0x43384642; // C8FB
+    public static final byte VERSION = 1;
+
+    static final int HELLO_SIZE = 6;
+    static final int KEY_EVENT_SIZE = 2;
+
+    private static final int ALL_ROWS = -1;
+    private static final int MAX_MESSAGE = HELLO_SIZE + 4 + ScreenMemory.ROWS * 8;
+
+    private final Keyboard keyboard;
+
+    // written by the emulation thread
+    private final long[] rows = new long[ScreenMemory.ROWS];
+    private final AtomicLongArray published = new AtomicLongArray(ScreenMemory.ROWS);
+    private final AtomicInteger sequence = new AtomicInteger(); // odd while rows are being published
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    // owned by the server thread
+    private final long[] latest = new long[ScreenMemory.ROWS];
+    private final List<Viewer> viewers = new ArrayList<>();
+    private Viewer controller;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Listen on the loopback interface.
+     *
+     * @param port the port, 0 for any free port
+     */
+    public FrameServer(Keyboard keyboard, int port) throws IOException {
+        this(keyboard, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public FrameServer(Keyboard keyboard, InetSocketAddress address) throws IOException {
+        this.keyboard = keyboard;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        this.server.bind(address);
+        this.server.configureBlocking(false);
+        this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::serve, "chip8-frame-server");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public int getPort() {
+        return this.server.socket().getLocalPort();
+    }
+
+    @Override
+    public void draw(ScreenMemory screenMemory) {
+        screenMemory.copyRows(this.rows);
+        int start = this.sequence.get();
+        this.sequence.set(start + 1);
+        for (int row = 0; row < ScreenMemory.ROWS; row++) {
+            this.published.set(row, this.rows[row]);
+        }
+        this.sequence.set(start + 2);
+        if (this.wakeupPending.compareAndSet(false, true)) {
+            this.selector.wakeup();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    private void serve() {
+        int seen = this.sequence.get();
+        try {
+            while (this.running) {
+                this.selector.select();
+                this.wakeupPending.set(false);
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Viewer viewer = (Viewer) key.attachment();
+                    if (key.isReadable()) {
+                        receive(viewer);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        send(viewer);
+                    }
+                }
+                if (this.sequence.get() != seen) {
+                    seen = readLatest();
+                    for (Viewer viewer : new ArrayList<>(this.viewers)) {
+                        send(viewer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Frame server stopped: " + e);
+        } finally {
+            for (Viewer viewer : new ArrayList<>(this.viewers)) {
+                disconnect(viewer);
+            }
+            try {
+                this.server.close();
+                this.selector.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+    }
+
+    /**
+     * Copy a consistent frame out of the published rows.
+     *
+     * @return the sequence number of the copied frame
+     */
+    private int readLatest() {
+        while (true) {
+            int before = this.sequence.get();
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            for (int row = 0; row < ScreenMemory.ROWS; row++) {
+                this.latest[row] = this.published.get(row);
+            }
+            if (this.sequence.get() == before) {
+                return before;
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = this.server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Viewer viewer = new Viewer(channel);
+        viewer.key = channel.register(this.selector, SelectionKey.OP_READ, viewer);
+        if (this.controller == null) {
+            this.controller = viewer;
+        }
+        this.viewers.add(viewer);
+        viewer.out.putInt(MAGIC).put(VERSION).put((byte) (viewer == this.controller ? 1 : 0));
+        readLatest();
+        send(viewer);
+    }
+
+    /**
+     * Write what is pending for the viewer, then a delta to the latest frame
+     * if the socket took everything.
+     */
+    private void send(Viewer viewer) {
+        try {
+            if (!flush(viewer)) {
+                return;
+            }
+            int mask = viewer.full ? ALL_ROWS : 0;
+            for (int row = 0; row < ScreenMemory.ROWS; row++) {
+                if (this.latest[row] != viewer.sent[row]) {
+                    mask |= 1 << row;
+                }
+            }
+            if (mask == 0) {
+                return;
+            }
+            viewer.out.putInt(mask);
+            for (int row = 0; row < ScreenMemory.ROWS; row++) {
+                if ((mask & (1 << row)) != 0) {
+                    viewer.out.putLong(this.latest[row]);
+                    viewer.sent[row] = this.latest[row];
+                }
+            }
+            viewer.full = false;
+            flush(viewer);
+        } catch (IOException e) {
+            disconnect(viewer);
+        }
+    }
+
+    /**
+     * @return true if nothing is left to write to the viewer
+     */
+    private boolean flush(Viewer viewer) throws IOException {
+        if (viewer.out.position() > 0) {
+            viewer.out.flip();
+            viewer.channel.write(viewer.out);
+            viewer.out.compact();
+        }
+        boolean drained = viewer.out.position() == 0;
+        int ops = drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (viewer.key.interestOps() != ops) {
+            viewer.key.interestOps(ops);
+        }
+        return drained;
+    }
+
+    private void receive(Viewer viewer) {
+        try {
+            if (viewer.channel.read(viewer.in) < 0) {
+                disconnect(viewer);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(viewer);
+            return;
+        }
+        viewer.in.flip();
+        while (viewer.in.remaining() >= KEY_EVENT_SIZE) {
+            int key = viewer.in.get();
+            boolean pressed = viewer.in.get() != 0;
+            if (viewer == this.controller && key >= 0 && key < Keyboard.KEYS) {
+                if (pressed) {
+                    viewer.pressed |= 1 << key;
+                    this.keyboard.press(key);
+                } else {
+                    viewer.pressed &= ~(1 << key);
+                    this.keyboard.release(key);
+                }
+            }
+        }
+        viewer.in.compact();
+    }
+
+    private void disconnect(Viewer viewer) {
+        this.viewers.remove(viewer);
+        if (viewer == this.controller) {
+            this.controller = null;
+            for (int key = 0; key < Keyboard.KEYS; key++) {
+                if ((viewer.pressed & (1 << key)) != 0) {
+                    this.keyboard.release(key);
+                }
+            }
+        }
+        try {
+            viewer.channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private static final class Viewer {
+
+        private final SocketChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(MAX_MESSAGE);
+        private final ByteBuffer in = ByteBuffer.allocateDirect(64);
+        private final long[] sent = new long[ScreenMemory.ROWS];
+        private SelectionKey key;
+        private boolean full = true;
+        private int pressed;
+
+        Viewer(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.brunoroberto.chip8;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Swing client of a {@link FrameServer}, for watching a headless interpreter.
+ * <p>
+ * Usage: {@code FrameViewer [host] <port>}
+ * </p>
+ * <p>
+ * When the server gives this viewer control, the keys typed in the window are
+ * sent to the remote interpreter, with the same mapping as {@link Application}.
+ * </p>
+ * <p>
+ * The window is built and shown on the EDT; the calling thread then reads the
+ * frames and hands them to the {@link Screen}, which is safe from any thread.
+ * </p>
+ */
+@SuppressWarnings("serial")
+public class FrameViewer extends JFrame {
+
+    private static final int SCALE = 10;
+
+    private final SocketChannel channel;
+    private final Screen screen = new Screen();
+    private final ScreenMemory screenMemory = new ScreenMemory();
+    private final ByteBuffer message = ByteBuffer.allocate(4 + ScreenMemory.ROWS * 8);
+
+    /**
+     * Must be called on the EDT.
+     *
+     * @param control whether the server gave this viewer control of the keys
+     */
+    private FrameViewer(SocketChannel channel, boolean control) {
+        super("JCHIP-8 viewer " + channel.socket().getRemoteSocketAddress() + (control ? " (in control)" : ""));
+        this.channel = channel;
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        this.screen.setBackground(Color.BLACK);
+        this.screen.setPreferredSize(new Dimension(ScreenMemory.COLUMNS * SCALE, ScreenMemory.ROWS * SCALE));
+        add(this.screen);
+        if (control) {
+            addKeyListener(new KeyboardListener(new RemoteKeyboard()));
+        }
+        pack();
+    }
+
+    /**
+     * Read the hello, then build and show the window on the EDT.
+     */
+    private static FrameViewer open(SocketChannel channel) throws IOException, InterruptedException {
+        ByteBuffer hello = ByteBuffer.allocate(FrameServer.HELLO_SIZE);
+        read(channel, hello, FrameServer.HELLO_SIZE);
+        if (hello.getInt() != FrameServer.MAGIC || hello.get() != FrameServer.VERSION) {
+            throw new IOException("not a CHIP-8 frame server");
+        }
+        boolean control = hello.get() == 1;
+        FrameViewer[] viewer = new FrameViewer[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                viewer[0] = new FrameViewer(channel, control);
+                viewer[0].setVisible(true);
+            });
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot open the viewer window", e.getCause());
+        }
+        return viewer[0];
+    }
+
+    /**
+     * Apply row deltas to the screen until the server goes away.
+     */
+    private void receive() throws IOException {
+        while (true) {
+            read(4);
+            int mask = this.message.getInt();
+            read(Integer.bitCount(mask) * 8);
+            for (int row = 0; row < ScreenMemory.ROWS; row++) {
+                if ((mask & (1 << row)) != 0) {
+                    this.screenMemory.setRow(row, this.message.getLong());
+                }
+            }
+            this.screen.draw(this.screenMemory);
+        }
+    }
+
+    private void read(int length) throws IOException {
+        read(this.channel, this.message, length);
+    }
+
+    private static void read(SocketChannel channel, ByteBuffer buffer, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("server closed the connection");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Sends key changes to the server instead of running an interpreter.
+     */
+    private final class RemoteKeyboard extends Keyboard {
+
+        private final ByteBuffer event = ByteBuffer.allocate(FrameServer.KEY_EVENT_SIZE);
+
+        @Override
+        public void press(int chip8Key) {
+            if (!isKeyPressed(chip8Key)) {
+                super.press(chip8Key);
+                send(chip8Key, true);
+            }
+        }
+
+        @Override
+        public void release(int chip8Key) {
+            if (isKeyPressed(chip8Key)) {
+                super.release(chip8Key);
+                send(chip8Key, false);
+            }
+        }
+
+        private void send(int chip8Key, boolean pressed) {
+            this.event.clear();
+            this.event.put((byte) chip8Key).put((byte) (pressed ? 1 : 0)).flip();
+            try {
+                while (this.event.hasRemaining()) {
+                    channel.write(this.event);
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot send key: " + e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: FrameViewer [host] <port>");
+            System.exit(-1);
+        }
+        String host = args.length > 1 ? args[0] : "localhost";
+        int port = Integer.parseInt(args[args.length - 1]);
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+        try {
+            open(channel).receive();
+        } catch (EOFException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            channel.close();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Golden-frame regression suite: runs every ROM with every input script on the
+ * {@link BatchRunner}, hashes the framebuffer at chosen frames and compares the
+ * hashes against a golden file.
+ * <p>
+ * Usage: {@code GoldenFrames [--update] <golden file> <rom file or directory>
+ * <frame,frame,...> [input scripts...]}
+ * </p>
+ * <p>
+ * The golden file has one line per ROM, script and checkpoint frame:
+ * {@code <rom> <script> <frame> <hash>} separated by tabs, so names may
+ * contain spaces, with the hash in hexadecimal and {@code #} starting a
+ * comment. With {@code --update} the file is rewritten
+ * from the current results instead of being compared against. Comparing only
+ * the 64 bit {@link ScreenMemory#hash()} of each frame keeps thousands of
+ * cases to seconds.
+ * </p>
+ * <p>
+ * Exits with status 1 if any case does not match, has no golden hash, or
+ * faulted before its last checkpoint.
+ * </p>
+ */
+public class GoldenFrames {
+
+    private static final String SEPARATOR = "\t";
+
+    private final Map<String, Long> golden;
+
+    public GoldenFrames(Map<String, Long> golden) {
+        this.golden = golden;
+    }
+
+    static String key(String rom, String script, long frame) {
+        return rom + SEPARATOR + script + SEPARATOR + frame;
+    }
+
+    public static GoldenFrames read(Path file) throws IOException {
+        Map<String, Long> golden = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] entry = line.split(SEPARATOR, -1);
+            if (entry.length != 4) {
+                throw new IllegalArgumentException(String.format(
+                        "%s:%d: expected <rom> <script> <frame> <hash> separated by tabs", file, i + 1));
+            }
+            golden.put(key(entry[0], entry[1], Long.parseLong(entry[2])), Long.parseUnsignedLong(entry[3], 16));
+        }
+        return new GoldenFrames(golden);
+    }
+
+    /**
+     * Write the golden hashes of the given results. Checkpoints a faulted run
+     * did not reach are left out.
+     */
+    public static void write(Path file, List<BatchRunner.Result> results, long[] checkpoints) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# <rom>\t<script>\t<frame>\t<framebuffer hash>");
+        for (BatchRunner.Result result : results) {
+            long[] hashes = result.getCheckpointHashes();
+            for (int i = 0; i < hashes.length; i++) {
+                lines.add(String.format("%s" + SEPARATOR + "%016x", key(result.getRom(), result.getScript(), checkpoints[i]),
+                        hashes[i]));
+            }
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return one line per failed checkpoint, empty if every result matches
+     */
+    public List<String> compare(List<BatchRunner.Result> results, long[] checkpoints) {
+        List<String> failures = new ArrayList<>();
+        for (BatchRunner.Result result : results) {
+            long[] hashes = result.getCheckpointHashes();
+            for (int i = 0; i < checkpoints.length; i++) {
+                String key = key(result.getRom(), result.getScript(), checkpoints[i]);
+                Long expected = this.golden.get(key);
+                if (i >= hashes.length) {
+                    failures.add(String.format("%s: not reached, fault=%s", key, result.getFault()));
+                } else if (expected == null) {
+                    failures.add(String.format("%s: no golden hash, got %016x", key, hashes[i]));
+                } else if (expected != hashes[i]) {
+                    failures.add(String.format("%s: expected %016x, got %016x", key, expected, hashes[i]));
+                }
+            }
+        }
+        return failures;
+    }
+
+    static long[] parseCheckpoints(String checkpoints) {
+        String[] frames = checkpoints.split(",");
+        long[] parsed = new long[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            parsed[i] = Long.parseLong(frames[i].trim());
+            if (parsed[i] <= 0 || (i > 0 && parsed[i] <= parsed[i - 1])) {
+                throw new IllegalArgumentException("checkpoint frames must be positive and increasing: " + checkpoints);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Run every ROM with every script on all cores, hashing the framebuffer at
+     * the checkpoints.
+     */
+    public static List<BatchRunner.Result> run(List<Path> roms, List<InputScript> scripts, long[] checkpoints,
+                                               int instructionsPerSecond, long seed)
+            throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return new BatchRunner(pool, instructionsPerSecond, seed).runAll(roms, scripts, checkpoints);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean update = args.length > 0 && args[0].equals("--update");
+        int first = update ? 1 : 0;
+        if (args.length - first < 3) {
+            System.err.println("Usage: GoldenFrames [--update] <golden file> <rom file or directory> <frame,frame,...> "
+                    + "[input scripts...]");
+            System.exit(-1);
+        }
+        Path goldenFile = Paths.get(args[first]);
+        List<Path> roms = BatchRunner.listRoms(Paths.get(args[first + 1]));
+        long[] checkpoints = parseCheckpoints(args[first + 2]);
+        List<InputScript> scripts = new ArrayList<>();
+        for (int i = first + 3; i < args.length; i++) {
+            scripts.add(InputScript.read(Paths.get(args[i])));
+        }
+        if (scripts.isEmpty()) {
+            scripts.add(InputScript.empty());
+        }
+
+        long start = System.nanoTime();
+        List<BatchRunner.Result> results = run(roms, scripts, checkpoints,
+                Integer.getInteger("chip8.ips", Scheduler.DEFAULT_INSTRUCTIONS_PER_SECOND),
+                Long.getLong("chip8.seed", BatchRunner.DEFAULT_SEED));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        if (update) {
+            results.stream().filter(result -> result.getFault() != null).forEach(System.out::println);
+            write(goldenFile, results, checkpoints);
+            System.out.println(String.format("%d runs written to %s in %d ms", results.size(), goldenFile, elapsed));
+            return;
+        }
+        List<String> failures = read(goldenFile).compare(results, checkpoints);
+        failures.forEach(System.out::println);
+        System.out.println(String.format("%d runs, %d checkpoints, %d failures in %d ms", results.size(),
+                results.size() * checkpoints.length, failures.size(), elapsed));
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.brunoroberto.chip8;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Runs a ROM with no display and no AWT/Swing classes loaded.
+ * <p>
+ * Usage: {@code HeadlessApplication <rom file> [frames]}
+ * </p>
+ * <p>
+ * Runs unthrottled unless {@code -Dchip8.unthrottled=false} is given, see
+ * {@link Scheduler}. With a frame count, stops after that many 60Hz frames.
+ * {@code -Dchip8.seed} seeds the CXKK generator to make the run reproducible.
+ * {@code -Dchip8.metrics=true} exports the runtime metrics over JMX, see
+ * {@link Metrics}. {@code -Dchip8.profile=true} prints the hottest loops and
+ * addresses at the end of the run, see {@link Profiler}.
+ * {@code -Dchip8.serve=<port>} streams the screen to {@link FrameViewer}s on
+ * the loopback interface, and then runs in real time by default.
+ * </p>
+ */
+public class HeadlessApplication {
+
+    private static final int PROFILE_ENTRIES = 10;
+
+    private HeadlessApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: HeadlessApplication <rom file> [frames]");
+            System.exit(-1);
+        }
+        byte[] rom = Files.readAllBytes(Paths.get(args[0]));
+        long frames = args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE;
+
+        Tracer tracer = Tracer.fromSystemProperties();
+        tracer.closeOnShutdown();
+
+        Long seed = Long.getLong("chip8.seed");
+        XorShiftRandom random = seed != null ? new XorShiftRandom(seed) : new XorShiftRandom();
+        Keyboard keyboard = new Keyboard(tracer);
+        Integer port = Integer.getInteger("chip8.serve");
+        Display display = new NullDisplay();
+        FrameServer server = null;
+        if (port != null) {
+            server = new FrameServer(keyboard, port);
+            System.out.println("Serving frames on port " + server.getPort());
+            display = server;
+        }
+        Chip8 chip8 = new Chip8(keyboard, display, new ScreenMemory(), tracer, random);
+        chip8.setTranslationEnabled(true);
+        chip8.setIdleLoopSkipping(true);
+        Profiler profiler = Boolean.getBoolean("chip8.profile") ? new Profiler() : null;
+        chip8.setProfiler(profiler);
+        if (Boolean.getBoolean("chip8.metrics")) {
+            Metrics.register(chip8, Paths.get(args[0]).getFileName().toString());
+        }
+        chip8.load(rom);
+
+        long start = System.nanoTime();
+        try {
+            Scheduler.fromSystemProperties(port == null).run(chip8, frames);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%d frames, %d instructions in %d ms", chip8.getFrames(), chip8.getCycles(),
+                elapsed / 1_000_000));
+        if (profiler != null) {
+            profiler.report(chip8, System.out, PROFILE_ENTRIES);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.github.brunoroberto.chip8;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in power of two nanosecond buckets: bucket i counts
+ * the durations from 2^i up to 2^(i+1) nanoseconds, bucket 0 also counts zero.
+ * <p>
+ * Recording is an array increment with no allocation and no synchronization:
+ * it must be done by a single thread, and other threads read a possibly
+ * slightly stale view.
+ * </p>
+ */
+final class Histogram {
+
+    static final int BUCKETS = 64;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+        long duration = Math.max(nanos, 1);
+        this.buckets[63 - Long.numberOfLeadingZeros(duration)]++;
+        this.count++;
+        this.total += duration;
+        if (duration > this.max) {
+            this.max = duration;
+        }
+    }
+
+    /**
+     * @return the bucket counts, trailing empty buckets removed
+     */
+    long[] buckets() {
+        long[] copy = this.buckets.clone();
+        int length = copy.length;
+        while (length > 0 && copy[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(copy, length);
+    }
+
+    long count() {
+        return this.count;
+    }
+
+    double meanMicros() {
+        long n = this.count;
+        return n == 0 ? 0 : this.total / (n * 1000.0);
+    }
+
+    double maxMicros() {
+        return this.max / 1000.0;
+    }
+}
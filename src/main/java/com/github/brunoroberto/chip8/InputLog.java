@@ -0,0 +1,301 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binary log of a session recorded by {@link RecordingKeyboard}, and its
+ * replay on a headless, unthrottled {@link Chip8}.
+ * <p>
+ * Layout, big endian:
+ * </p>
+ *
+ * <pre>
+ *  header: magic "C8IN" (4), version (2), reserved (2), CXKK seed (8),
+ *          instructions per second (4), CRC-32 of the ROM (4)
+ *  event:  one byte, 0x80 | key for a press or key for a release, then the
+ *          instructions executed since the previous event (varint)
+ *  end:    0xFF, frames run (varint), hash of the final machine state (8)
+ * </pre>
+ * <p>
+ * Varints are unsigned LEB128. A typical event takes two to four bytes.
+ * Events are applied at the end of the frame in which the instruction count
+ * reaches their stamp, as they were when recorded, so with the same ROM, seed
+ * and clock the replay goes through exactly the same states. The end record
+ * lets {@link #main(String[])} check that it did.
+ * </p>
+ */
+public final class InputLog {
+
+    static final int MAGIC = 0x4338494E; // C8IN
+    static final short VERSION = 1;
+
+    static final int PRESSED = 0x80;
+    static final int KEY = 0x0F;
+    static final int END = 0xFF;
+
+    private final long seed;
+    private final int instructionsPerSecond;
+    private final int romChecksum;
+    private final long[] cycles;
+    private final byte[] events;
+    private final long frames;
+    private final long stateHash;
+
+    private InputLog(long seed, int instructionsPerSecond, int romChecksum, long[] cycles, byte[] events, long frames,
+                     long stateHash) {
+        this.seed = seed;
+        this.instructionsPerSecond = instructionsPerSecond;
+        this.romChecksum = romChecksum;
+        this.cycles = cycles;
+        this.events = events;
+        this.frames = frames;
+        this.stateHash = stateHash;
+    }
+
+    static void writeHeader(DataOutputStream out, long seed, int instructionsPerSecond, byte[] rom)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeLong(seed);
+        out.writeInt(instructionsPerSecond);
+        out.writeInt(checksum(rom));
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    static int checksum(byte[] rom) {
+        CRC32 crc = new CRC32();
+        crc.update(rom, 0, rom.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return a 64 bit FNV-1a hash of the complete machine state
+     */
+    static long stateHash(Chip8 chip8) {
+        ByteBuffer state = SaveState.capture(chip8);
+        long hash = 0xCBF29CE484222325L;
+        while (state.hasRemaining()) {
+            hash = (hash ^ (state.get() & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Read a log. A log whose session did not end cleanly has no end record:
+     * its events are kept, and {@link #getFrames()} is the frame of the last
+     * event.
+     */
+    public static InputLog read(Path file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+            DataInputStream in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a CHIP-8 input log: " + file);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported input log version: " + version);
+            }
+            in.readShort();
+            long seed = in.readLong();
+            int instructionsPerSecond = in.readInt();
+            int romChecksum = in.readInt();
+
+            long[] cycles = new long[64];
+            byte[] events = new byte[64];
+            int count = 0;
+            long cycle = 0;
+            long frames = -1;
+            long stateHash = 0;
+            try {
+                while (true) {
+                    int event = in.read();
+                    if (event < 0) {
+                        break;
+                    }
+                    if (event == END) {
+                        // kept only once complete, a log cut inside it has no end record
+                        long endFrames = readVarLong(in);
+                        long endHash = in.readLong();
+                        frames = endFrames;
+                        stateHash = endHash;
+                        break;
+                    }
+                    if ((event & ~(PRESSED | KEY)) != 0) {
+                        throw new IOException(String.format("invalid input log event: 0x%02X", event));
+                    }
+                    cycle += readVarLong(in);
+                    if (count == cycles.length) {
+                        cycles = Arrays.copyOf(cycles, count * 2);
+                        events = Arrays.copyOf(events, count * 2);
+                    }
+                    cycles[count] = cycle;
+                    events[count] = (byte) event;
+                    count++;
+                }
+            } catch (EOFException e) {
+                // truncated log, keep the complete events
+            }
+            return new InputLog(seed, instructionsPerSecond, romChecksum, Arrays.copyOf(cycles, count),
+                    Arrays.copyOf(events, count), frames, stateHash);
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getInstructionsPerSecond() {
+        return instructionsPerSecond;
+    }
+
+    public int getEvents() {
+        return events.length;
+    }
+
+    /**
+     * @return the frames run by the recorded session, -1 if the log has no
+     * end record
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return a player feeding the logged events into the keyboard, to be
+     * registered as a frame listener of the interpreter
+     */
+    public Player player(Keyboard keyboard) {
+        return new Player(keyboard);
+    }
+
+    /**
+     * Replay the session on a new headless interpreter, unthrottled, up to the
+     * recorded end or, without an end record, up to the last event.
+     *
+     * @return the interpreter, stopped where the session ended
+     * @throws IllegalArgumentException if the ROM is not the recorded one
+     */
+    public Chip8 replay(byte[] rom) throws InterruptedException {
+        if (checksum(rom) != this.romChecksum) {
+            throw new IllegalArgumentException("the ROM is not the one the input log was recorded with");
+        }
+        Keyboard keyboard = new Keyboard();
+        Chip8 chip8 = new Chip8(keyboard, new NullDisplay(), new ScreenMemory(), Tracer.errorsOnly(),
+                new XorShiftRandom(this.seed));
+        chip8.setTranslationEnabled(true);
+        chip8.setIdleLoopSkipping(true);
+        chip8.setBlockingKeyWait(false);
+        Player player = player(keyboard);
+        chip8.addFrameListener(player);
+        chip8.load(rom);
+
+        Scheduler scheduler = Scheduler.unthrottled(this.instructionsPerSecond);
+        if (this.frames >= 0) {
+            scheduler.run(chip8, this.frames);
+        } else {
+            while (!player.isDone() && chip8.isRunning()) {
+                scheduler.run(chip8, 1);
+            }
+        }
+        return chip8;
+    }
+
+    /**
+     * @return true if the interpreter is in the state the recorded session
+     * ended in; false as well if the log has no end record
+     */
+    public boolean matches(Chip8 chip8) {
+        return this.frames >= 0 && chip8.getFrames() == this.frames && stateHash(chip8) == this.stateHash;
+    }
+
+    public final class Player implements FrameListener {
+
+        private final Keyboard keyboard;
+        private int next;
+
+        private Player(Keyboard keyboard) {
+            this.keyboard = keyboard;
+        }
+
+        public boolean isDone() {
+            return this.next == events.length;
+        }
+
+        @Override
+        public void frameCompleted(Chip8 chip8) {
+            long executed = chip8.getCycles();
+            while (this.next < events.length && cycles[this.next] <= executed) {
+                int event = events[this.next] & 0xFF;
+                if ((event & PRESSED) != 0) {
+                    this.keyboard.press(event & KEY);
+                } else {
+                    this.keyboard.release(event);
+                }
+                this.next++;
+            }
+        }
+    }
+
+    /**
+     * Usage: {@code InputLog <rom file> <input log>}
+     * <p>
+     * Replays the log and checks that the interpreter ends in the recorded
+     * state, exiting with status 1 if it does not.
+     * </p>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: InputLog <rom file> <input log>");
+            System.exit(-1);
+        }
+        byte[] rom = Files.readAllBytes(Paths.get(args[0]));
+        InputLog log = read(Paths.get(args[1]));
+
+        long start = System.nanoTime();
+        Chip8 chip8 = log.replay(rom);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%d events, %d frames, %d instructions replayed in %d ms", log.getEvents(),
+                chip8.getFrames(), chip8.getCycles(), elapsed / 1_000_000));
+        if (log.getFrames() < 0) {
+            System.out.println("no end record, the final state cannot be checked");
+        } else if (log.matches(chip8)) {
+            System.out.println("final state matches the recording");
+        } else {
+            System.out.println("final state differs from the recording");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Key presses and releases scheduled on 60Hz frame numbers, to drive a
+ * headless {@link Chip8}.
+ *
+ * <pre>
+ * One event per line, blank lines and lines starting with # are ignored:
+ *  &lt;frame&gt; &lt;key 0-F&gt; down|up
+ * </pre>
+ * <p>
+ * Events are applied on the emulation thread before the frame they are
+ * scheduled on, so a run with the same script is always the same.
+ * </p>
+ */
+public final class InputScript {
+
+    private static final InputScript EMPTY = new InputScript("-", Collections.emptyList());
+
+    private final String name;
+    private final long[] frames;
+    private final byte[] keys;
+    private final boolean[] pressed;
+
+    private InputScript(String name, List<String[]> events) {
+        this.name = name;
+        this.frames = new long[events.size()];
+        this.keys = new byte[events.size()];
+        this.pressed = new boolean[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            String[] event = events.get(i);
+            this.frames[i] = Long.parseLong(event[0]);
+            this.keys[i] = (byte) Integer.parseInt(event[1], 16);
+            this.pressed[i] = "down".equals(event[2]);
+        }
+    }
+
+    public static InputScript empty() {
+        return EMPTY;
+    }
+
+    public static InputScript read(Path file) throws IOException {
+        return parse(file.getFileName().toString(), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    public static InputScript parse(String name, List<String> lines) {
+        List<String[]> events = new ArrayList<>();
+        long previousFrame = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] event = line.split("\\s+");
+            if (event.length != 3 || !(event[2].equals("down") || event[2].equals("up"))) {
+                throw new IllegalArgumentException(String.format("%s:%d: expected <frame> <key> down|up", name, i + 1));
+            }
+            long frame;
+            int key;
+            try {
+                frame = Long.parseLong(event[0]);
+                key = Integer.parseInt(event[1], 16);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("%s:%d: invalid event '%s'", name, i + 1, line), e);
+            }
+            if (frame < previousFrame || key < 0 || key > 0xF) {
+                throw new IllegalArgumentException(String.format("%s:%d: invalid event '%s'", name, i + 1, line));
+            }
+            previousFrame = frame;
+            events.add(event);
+        }
+        return new InputScript(name, events);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a player feeding this script into the keyboard, to be registered
+     * as a frame listener of the interpreter
+     */
+    public Player player(Keyboard keyboard) {
+        return new Player(keyboard);
+    }
+
+    public final class Player implements FrameListener {
+
+        private final Keyboard keyboard;
+        private int next;
+
+        private Player(Keyboard keyboard) {
+            this.keyboard = keyboard;
+        }
+
+        /**
+         * Apply every event scheduled up to the given frame.
+         */
+        public void applyUntil(long frame) {
+            while (this.next < frames.length && frames[this.next] <= frame) {
+                if (pressed[this.next]) {
+                    this.keyboard.press(keys[this.next]);
+                } else {
+                    this.keyboard.release(keys[this.next]);
+                }
+                this.next++;
+            }
+        }
+
+        @Override
+        public void frameCompleted(Chip8 chip8) {
+            applyUntil(chip8.getFrames());
+        }
+    }
+}
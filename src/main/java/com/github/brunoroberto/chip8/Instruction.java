@@ -0,0 +1,151 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * A decoded CHIP-8 instruction: the handler for its operation type together
+ * with its operands already unpacked from the 16 bit operation code.
+ * <p>
+ * Instances are immutable. Every one of the 65536 possible operation codes is
+ * decoded once into a shared table, so decoding never allocates and a decoded
+ * instruction can be cached by {@link Memory} and executed any number of times.
+ * </p>
+ *
+ * <pre>
+ *  nnn or addr - A 12-bit value, the lowest 12 bits of the instruction
+ *  n or nibble - A 4-bit value, the lowest 4 bits of the instruction
+ *  x - A 4-bit value, the lower 4 bits of the high byte of the instruction
+ *  y - A 4-bit value, the upper 4 bits of the low byte of the instruction
+ *  kk or byte - An 8-bit value, the lowest 8 bits of the instruction
+ * </pre>
+ */
+public final class Instruction {
+
+    private static final Instruction[] TABLE = new Instruction[0x10000];
+
+    static {
+        for (int opCode = 0; opCode < TABLE.length; opCode++) {
+            TABLE[opCode] = new Instruction(Operation.forOpCode(opCode), (short) opCode);
+        }
+    }
+
+    final Operation operation;
+    final short opCode;
+    final int x;
+    final int y;
+    final int n;
+    final byte kk;
+    final short nnn;
+
+    private Instruction(Operation operation, short opCode) {
+        this.operation = operation;
+        this.opCode = opCode;
+        this.x = (opCode & 0x0F00) >>> 8;
+        this.y = (opCode & 0x00F0) >>> 4;
+        this.n = opCode & 0x000F;
+        this.kk = (byte) (opCode & 0x00FF);
+        this.nnn = (short) (opCode & 0x0FFF);
+    }
+
+    /**
+     * Decode a 16 bit operation code
+     *
+     * @param opCode 16bit operation code
+     * @return the decoded instruction
+     */
+    public static Instruction decode(short opCode) {
+        return TABLE[opCode & 0xFFFF];
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public short getOpCode() {
+        return opCode;
+    }
+
+    /**
+     * @return the instruction in the usual CHIP-8 assembly syntax, for example
+     * {@code LD V1, 0x0A}
+     */
+    public String disassemble() {
+        switch (this.operation) {
+            case SYS:
+                return String.format("SYS 0x%03X", this.nnn);
+            case CLS:
+                return "CLS";
+            case RET:
+                return "RET";
+            case JP:
+                return String.format("JP 0x%03X", this.nnn);
+            case CALL:
+                return String.format("CALL 0x%03X", this.nnn);
+            case SE_VX_BYTE:
+                return String.format("SE V%X, 0x%02X", this.x, this.kk);
+            case SNE_VX_BYTE:
+                return String.format("SNE V%X, 0x%02X", this.x, this.kk);
+            case SE_VX_VY:
+                return String.format("SE V%X, V%X", this.x, this.y);
+            case LD_VX_BYTE:
+                return String.format("LD V%X, 0x%02X", this.x, this.kk);
+            case ADD_VX_BYTE:
+                return String.format("ADD V%X, 0x%02X", this.x, this.kk);
+            case LD_VX_VY:
+                return String.format("LD V%X, V%X", this.x, this.y);
+            case OR:
+                return String.format("OR V%X, V%X", this.x, this.y);
+            case AND:
+                return String.format("AND V%X, V%X", this.x, this.y);
+            case XOR:
+                return String.format("XOR V%X, V%X", this.x, this.y);
+            case ADD_VX_VY:
+                return String.format("ADD V%X, V%X", this.x, this.y);
+            case SUB:
+                return String.format("SUB V%X, V%X", this.x, this.y);
+            case SHR:
+                return String.format("SHR V%X", this.x);
+            case SUBN:
+                return String.format("SUBN V%X, V%X", this.x, this.y);
+            case SHL:
+                return String.format("SHL V%X", this.x);
+            case SNE_VX_VY:
+                return String.format("SNE V%X, V%X", this.x, this.y);
+            case LD_I:
+                return String.format("LD I, 0x%03X", this.nnn);
+            case JP_V0:
+                return String.format("JP V0, 0x%03X", this.nnn);
+            case RND:
+                return String.format("RND V%X, 0x%02X", this.x, this.kk);
+            case DRW:
+                return String.format("DRW V%X, V%X, %d", this.x, this.y, this.n);
+            case SKP:
+                return String.format("SKP V%X", this.x);
+            case SKNP:
+                return String.format("SKNP V%X", this.x);
+            case LD_VX_DT:
+                return String.format("LD V%X, DT", this.x);
+            case LD_VX_K:
+                return String.format("LD V%X, K", this.x);
+            case LD_DT:
+                return String.format("LD DT, V%X", this.x);
+            case LD_ST:
+                return String.format("LD ST, V%X", this.x);
+            case ADD_I:
+                return String.format("ADD I, V%X", this.x);
+            case LD_F:
+                return String.format("LD F, V%X", this.x);
+            case LD_B:
+                return String.format("LD B, V%X", this.x);
+            case LD_I_VX:
+                return String.format("LD [I], V%X", this.x);
+            case LD_VX_I:
+                return String.format("LD V%X, [I]", this.x);
+            default:
+                return String.format("DW 0x%04X", this.opCode);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("0x%04X", this.opCode);
+    }
+}
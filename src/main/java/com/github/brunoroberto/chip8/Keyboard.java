@@ -1,102 +1,169 @@
 package com.github.brunoroberto.chip8;
 
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.util.HashMap;
-import java.util.Map;
-
-public class Keyboard implements KeyListener {
-
-    private Map<Integer, Integer> mappedKeys = new HashMap<>();
-    private Map<Integer, Boolean> pressedStates = new HashMap<>();
-
-    private int countPressedKeys;
-    private byte latestPressedKey;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * State of the CHIP-8 hexadecimal keypad (keys 0x0 to 0xF).
+ * <p>
+ * Has no dependency on AWT: key presses are fed through {@link #press(int)}
+ * and {@link #release(int)}, either by a {@link KeyboardListener} or by any
+ * other input source.
+ * </p>
+ * <p>
+ * The pressed keys are kept in a 16 bit mask updated with compare-and-set, so
+ * the input thread and the emulation thread never lock. A thread waiting for
+ * a key (FX0A) parks until a key event wakes it up; a key pressed while it
+ * waits is latched, so a tap released before the thread runs again is not
+ * lost.
+ * </p>
+ */
+public class Keyboard {
+
+    static final int KEYS = 16;
+
+    private static final int NO_KEY = -1;
+
+    private final Tracer tracer;
+
+    private final AtomicInteger pressedMask = new AtomicInteger();
+    private volatile Thread waiter;
+    // first key pressed since the waiter started waiting
+    private final AtomicInteger pendingPress = new AtomicInteger(NO_KEY);
 
     public Keyboard() {
-        this.mappedKeys.put(KeyEvent.VK_1, 0x1);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD1, 0x1);
-        this.mappedKeys.put(KeyEvent.VK_2, 0x2);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD2, 0x2);
-        this.mappedKeys.put(KeyEvent.VK_3, 0x3);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD3, 0x3);
-        this.mappedKeys.put(KeyEvent.VK_C, 0xC);
-
-        this.mappedKeys.put(KeyEvent.VK_4, 0x4);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD4, 0x4);
-        this.mappedKeys.put(KeyEvent.VK_5, 0x5);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD5, 0x5);
-        this.mappedKeys.put(KeyEvent.VK_6, 0x6);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD6, 0x6);
-        this.mappedKeys.put(KeyEvent.VK_D, 0xD);
-
-        this.mappedKeys.put(KeyEvent.VK_7, 0x7);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD7, 0x7);
-        this.mappedKeys.put(KeyEvent.VK_8, 0x8);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD8, 0x8);
-        this.mappedKeys.put(KeyEvent.VK_9, 0x9);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD9, 0x9);
-        this.mappedKeys.put(KeyEvent.VK_E, 0xE);
-
-        this.mappedKeys.put(KeyEvent.VK_A, 0xA);
-        this.mappedKeys.put(KeyEvent.VK_0, 0x0);
-        this.mappedKeys.put(KeyEvent.VK_NUMPAD0, 0x0);
-        this.mappedKeys.put(KeyEvent.VK_B, 0xB);
-        this.mappedKeys.put(KeyEvent.VK_F, 0xF);
+        this(Tracer.errorsOnly());
     }
 
-    private boolean isKeyboardKeyMapped(int keyboardKey) {
-        return mappedKeys.containsKey(keyboardKey);
+    public Keyboard(Tracer tracer) {
+        this.tracer = tracer;
     }
 
-    private int getChip8Key(int keyboardKey) {
-        return this.mappedKeys.get(keyboardKey);
+    /**
+     * @throws IllegalArgumentException if the key is not 0x0 to 0xF
+     */
+    public void press(int chip8Key) {
+        checkKey(chip8Key);
+        int bit = 1 << chip8Key;
+        int mask;
+        do {
+            mask = this.pressedMask.get();
+        } while (!this.pressedMask.compareAndSet(mask, mask | bit));
+        if ((mask & bit) == 0) {
+            trace("Key pressed: ", chip8Key);
+            this.pendingPress.compareAndSet(NO_KEY, chip8Key);
+            wakeWaiter();
+        }
     }
 
-    private void setPressedState(int chip8Key, boolean pressed) {
-        this.pressedStates.put(chip8Key, pressed);
+    /**
+     * @throws IllegalArgumentException if the key is not 0x0 to 0xF
+     */
+    public void release(int chip8Key) {
+        checkKey(chip8Key);
+        int bit = 1 << chip8Key;
+        int mask;
+        do {
+            mask = this.pressedMask.get();
+        } while (!this.pressedMask.compareAndSet(mask, mask & ~bit));
+        if ((mask & bit) != 0) {
+            trace("Key released: ", chip8Key);
+            wakeWaiter();
+        }
     }
 
-    @Override
-    public void keyTyped(KeyEvent e) {
+    static void checkKey(int chip8Key) {
+        if (chip8Key < 0 || chip8Key >= KEYS) {
+            throw new IllegalArgumentException("invalid key: " + chip8Key);
+        }
     }
 
-    @Override
-    public void keyPressed(KeyEvent e) {
-        if (!isKeyboardKeyMapped(e.getKeyCode())) {
-            return;
+    private void wakeWaiter() {
+        Thread thread = this.waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
         }
-        int chip8Key = getChip8Key(e.getKeyCode());
-        setPressedState(chip8Key, true);
-        this.latestPressedKey = (byte) chip8Key;
-        this.countPressedKeys++;
-        System.out.println("Key pressed: " + e.getKeyCode() + " - " + getChip8Key(e.getKeyCode()));
     }
 
-    @Override
-    public void keyReleased(KeyEvent e) {
-        if (!isKeyboardKeyMapped(e.getKeyCode())) {
-            return;
+    private void trace(String message, int chip8Key) {
+        if (this.tracer.isEnabled(Tracer.Level.DEBUG, Tracer.Category.KEYBOARD)) {
+            this.tracer.log(Tracer.Level.DEBUG, Tracer.Category.KEYBOARD, message + chip8Key);
         }
-        this.countPressedKeys--;
-        setPressedState(getChip8Key(e.getKeyCode()), false);
-        System.out.println("Key released: " + e.getKeyCode() + " - " + getChip8Key(e.getKeyCode()));
     }
 
+    /**
+     * @param chip8Key the key, as read from a V register
+     */
     public boolean isKeyPressed(int chip8Key) {
-        return pressedStates.getOrDefault(chip8Key, false);
+        int key = chip8Key & 0xFF;
+        return key < KEYS && (this.pressedMask.get() & (1 << key)) != 0;
+    }
+
+    /**
+     * @return the pressed keys, bit n set when key n is down
+     */
+    public int getPressedMask() {
+        return this.pressedMask.get();
     }
 
-    public byte waitForKeyPressed() {
-        System.out.println("Waiting for key");
-        while (this.countPressedKeys == 0) {
-            try {
-                Thread.sleep(0);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    /**
+     * Park the calling thread until a key is down.
+     *
+     * @return the lowest key down when the thread wakes up, like the
+     * non-blocking FX0A of {@link Chip8}, or the key pressed during the wait
+     * if it was already released
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public byte waitForKeyPressed() throws InterruptedException {
+        if (this.tracer.isEnabled(Tracer.Level.DEBUG, Tracer.Category.KEYBOARD)) {
+            this.tracer.log(Tracer.Level.DEBUG, Tracer.Category.KEYBOARD, "Waiting for key");
+        }
+        this.pendingPress.set(NO_KEY);
+        this.waiter = Thread.currentThread();
+        try {
+            while (true) {
+                int mask = this.pressedMask.get();
+                if (mask != 0) {
+                    return (byte) Integer.numberOfTrailingZeros(mask);
+                }
+                int key = this.pendingPress.get();
+                if (key != NO_KEY) {
+                    return (byte) key;
+                }
+                parkInterruptibly();
+            }
+        } finally {
+            this.waiter = null;
+        }
+    }
+
+    /**
+     * Park the calling thread until a key is pressed and released again, like
+     * the original COSMAC VIP interpreter. The key is chosen as in
+     * {@link #waitForKeyPressed()}, other keys are ignored.
+     *
+     * @return the released key
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public byte waitForKeyReleased() throws InterruptedException {
+        byte key = waitForKeyPressed();
+        int bit = 1 << key;
+        this.waiter = Thread.currentThread();
+        try {
+            while ((this.pressedMask.get() & bit) != 0) {
+                parkInterruptibly();
             }
+            return key;
+        } finally {
+            this.waiter = null;
+        }
+    }
+
+    private void parkInterruptibly() throws InterruptedException {
+        LockSupport.park(this);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
         }
-        return latestPressedKey;
     }
 
 }
@@ -0,0 +1,85 @@
+package com.github.brunoroberto.chip8;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.util.Arrays;
+
+/**
+ * Maps AWT key events to the CHIP-8 {@link Keyboard}.
+ */
+public class KeyboardListener implements KeyListener {
+
+    private static final int UNMAPPED = -1;
+
+    private final Keyboard keyboard;
+
+    // CHIP-8 key indexed by AWT key code
+    private final byte[] mappedKeys = new byte[256];
+
+    public KeyboardListener(Keyboard keyboard) {
+        this.keyboard = keyboard;
+        Arrays.fill(this.mappedKeys, (byte) UNMAPPED);
+
+        map(KeyEvent.VK_1, 0x1);
+        map(KeyEvent.VK_NUMPAD1, 0x1);
+        map(KeyEvent.VK_2, 0x2);
+        map(KeyEvent.VK_NUMPAD2, 0x2);
+        map(KeyEvent.VK_3, 0x3);
+        map(KeyEvent.VK_NUMPAD3, 0x3);
+        map(KeyEvent.VK_C, 0xC);
+
+        map(KeyEvent.VK_4, 0x4);
+        map(KeyEvent.VK_NUMPAD4, 0x4);
+        map(KeyEvent.VK_5, 0x5);
+        map(KeyEvent.VK_NUMPAD5, 0x5);
+        map(KeyEvent.VK_6, 0x6);
+        map(KeyEvent.VK_NUMPAD6, 0x6);
+        map(KeyEvent.VK_D, 0xD);
+
+        map(KeyEvent.VK_7, 0x7);
+        map(KeyEvent.VK_NUMPAD7, 0x7);
+        map(KeyEvent.VK_8, 0x8);
+        map(KeyEvent.VK_NUMPAD8, 0x8);
+        map(KeyEvent.VK_9, 0x9);
+        map(KeyEvent.VK_NUMPAD9, 0x9);
+        map(KeyEvent.VK_E, 0xE);
+
+        map(KeyEvent.VK_A, 0xA);
+        map(KeyEvent.VK_0, 0x0);
+        map(KeyEvent.VK_NUMPAD0, 0x0);
+        map(KeyEvent.VK_B, 0xB);
+        map(KeyEvent.VK_F, 0xF);
+    }
+
+    private void map(int keyboardKey, int chip8Key) {
+        this.mappedKeys[keyboardKey] = (byte) chip8Key;
+    }
+
+    private int getChip8Key(int keyboardKey) {
+        if (keyboardKey < 0 || keyboardKey >= this.mappedKeys.length) {
+            return UNMAPPED;
+        }
+        return this.mappedKeys[keyboardKey];
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int chip8Key = getChip8Key(e.getKeyCode());
+        if (chip8Key != UNMAPPED) {
+            this.keyboard.press(chip8Key);
+        }
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int chip8Key = getChip8Key(e.getKeyCode());
+        if (chip8Key != UNMAPPED) {
+            this.keyboard.release(chip8Key);
+        }
+    }
+
+}
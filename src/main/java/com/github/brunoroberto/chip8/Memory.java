@@ -1,5 +1,6 @@
 package com.github.brunoroberto.chip8;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -10,28 +11,139 @@ import java.util.Arrays;
  */
 public class Memory {
 
-	private static final short SIZE = 4096; // 4KB
+	static final short SIZE = 4096; // 4KB
 
 	private byte[] memory;
 
+	// decoded instruction cache, one entry per even address
+	private Instruction[] instructions;
+
+	// slots covered by translated blocks, see Translator
+	private boolean[] code;
+	private int codeVersion;
+
+	// code slots written since the code marks were last cleared
+	private boolean[] codeWrites;
+
+	// incremented whenever the whole program is replaced
+	private int resetEpoch;
+
 	public Memory() {
 		this.memory = new byte[SIZE];
+		this.instructions = new Instruction[SIZE / 2];
+		this.code = new boolean[SIZE / 2];
+		this.codeWrites = new boolean[SIZE / 2];
 	}
 
+	/**
+	 * Write a byte and invalidate the cached instruction that covers it, so
+	 * ROM loading and self-modifying code (FX33, FX55) are always decoded again.
+	 */
 	public void writeWord(int address, byte word) {
 		this.memory[address] = word;
+		this.instructions[address >> 1] = null;
+		if (this.code[address >> 1]) {
+			this.code[address >> 1] = false;
+			this.codeWrites[address >> 1] = true;
+			this.codeVersion++;
+		}
+	}
+
+	/**
+	 * Fetch the instruction at the given address, decoding it only on the first
+	 * fetch after the address was written. Instructions at odd addresses are
+	 * rare and are decoded on every fetch.
+	 */
+	public Instruction getInstruction(int address) {
+		if ((address & 1) != 0) {
+			return decode(address);
+		}
+		Instruction instruction = this.instructions[address >> 1];
+		if (instruction == null) {
+			instruction = decode(address);
+			this.instructions[address >> 1] = instruction;
+		}
+		return instruction;
+	}
+
+	private Instruction decode(int address) {
+		return Instruction.decode((short) ((getWord(address) << 8) | (getWord(address + 1) & 0x00FF)));
 	}
 
+	/**
+	 * The interpreter checks addresses before reading and faults instead, see
+	 * {@link Fault.Kind#MEMORY_READ}.
+	 */
 	public byte getWord(int address) {
-		try {
-			return this.memory[address];
-		} catch (ArrayIndexOutOfBoundsException e) {
-			e.printStackTrace();
-			throw e;
+		return this.memory[address];
+	}
+
+	public void save(ByteBuffer buffer) {
+		buffer.put(this.memory);
+	}
+
+	/**
+	 * Replace the whole memory content. Every decoded instruction and translated
+	 * block is discarded.
+	 */
+	public void restore(ByteBuffer buffer) {
+		buffer.get(this.memory);
+		Arrays.fill(this.instructions, null);
+		reset();
+	}
+
+	/**
+	 * Write a program at the given address. The program replaces the previous
+	 * one, so code written over is not self-modifying: every translated block
+	 * is discarded.
+	 */
+	public void load(int address, byte[] program) {
+		for (byte word : program) {
+			writeWord(address++, word);
 		}
+		reset();
+	}
+
+	private void reset() {
+		Arrays.fill(this.code, false);
+		Arrays.fill(this.codeWrites, false);
+		this.codeVersion++;
+		this.resetEpoch++;
+	}
+
+	void markCode(int from, int to) {
+		Arrays.fill(this.code, from >> 1, (to + 1) >> 1, true);
 	}
 
-	public void dump() {
-		System.out.println("Memory: " + Arrays.toString(memory));
+	void clearCodeMarks() {
+		Arrays.fill(this.code, false);
+		Arrays.fill(this.codeWrites, false);
+	}
+
+	/**
+	 * @return a counter incremented whenever a byte marked as code is written
+	 */
+	int getCodeVersion() {
+		return this.codeVersion;
+	}
+
+	/**
+	 * @return a counter incremented whenever the whole program is replaced, by
+	 *         {@link #restore(ByteBuffer)} or {@link #load(int, byte[])}
+	 */
+	int getResetEpoch() {
+		return this.resetEpoch;
+	}
+
+	/**
+	 * Set the slots (address / 2) written while marked as code since the marks
+	 * were last cleared.
+	 */
+	void addCodeWrites(boolean[] slots) {
+		for (int slot = 0; slot < this.codeWrites.length; slot++) {
+			if (this.codeWrites[slot]) {
+				slots[slot] = true;
+			}
+		}
 	}
 }
@@ -0,0 +1,186 @@
+package com.github.brunoroberto.chip8;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime metrics of one {@link Chip8}, exported over JMX as a
+ * {@link Chip8MXBean}.
+ * <p>
+ * Every counter is a plain primitive field or array written only by the
+ * emulation thread, so collecting costs one array increment per instruction
+ * and two clock reads per frame. JMX reads them from other threads without
+ * synchronization and may see values a frame old.
+ * </p>
+ * <p>
+ * Render times are the exception: they are recorded by {@link Screen} on the
+ * EDT, its only writer, when given these metrics with
+ * {@link Screen#setMetrics(Metrics)}, since presenting a frame on the
+ * emulation thread is only a copy into a {@link FrameExchange}.
+ * </p>
+ */
+public final class Metrics implements Chip8MXBean {
+
+    private static final String DOMAIN = "com.github.brunoroberto.chip8";
+    private static final long RATE_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final long[] families = new long[16];
+    private final Histogram frameTimes = new Histogram();
+    private final Histogram renderTimes = new Histogram();
+
+    private long instructions;
+    private long frames;
+    private long screenUpdates;
+    private long keyboardWaits;
+    private long keyboardWaitNanos;
+
+    private long windowStart;
+    private long windowInstructions;
+    private volatile double instructionsPerSecond;
+
+    private ObjectName name;
+
+    /**
+     * Collect the metrics of the interpreter and register them with the
+     * platform MBean server, as {@code com.github.brunoroberto.chip8:type=Chip8,name=<name>}.
+     */
+    public static Metrics register(Chip8 chip8, String name) {
+        Metrics metrics = new Metrics();
+        try {
+            metrics.name = new ObjectName(DOMAIN + ":type=Chip8,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metrics.name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register metrics " + name, e);
+        }
+        chip8.setMetrics(metrics);
+        return metrics;
+    }
+
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (this.name != null && server.isRegistered(this.name)) {
+                server.unregisterMBean(this.name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister metrics " + this.name, e);
+        }
+    }
+
+    void instruction(short opCode) {
+        this.families[(opCode >> 12) & 0xF]++;
+    }
+
+    void screenUpdated() {
+        this.screenUpdates++;
+    }
+
+    /**
+     * @param renderNanos time taken to paint a frame, on the EDT
+     */
+    void painted(long renderNanos) {
+        this.renderTimes.record(renderNanos);
+    }
+
+    void keyboardWaited(long nanos) {
+        this.keyboardWaits++;
+        this.keyboardWaitNanos += nanos;
+    }
+
+    /**
+     * @param instructions total instructions executed at the end of the frame
+     * @param end          clock at the end of the frame, from {@link System#nanoTime()}
+     */
+    void frameCompleted(long instructions, long frameNanos, long end) {
+        this.instructions = instructions;
+        this.frames++;
+        this.frameTimes.record(frameNanos);
+        long elapsed = end - this.windowStart;
+        if (this.frames == 1) {
+            this.windowStart = end;
+            this.windowInstructions = instructions;
+        } else if (elapsed >= RATE_WINDOW) {
+            this.instructionsPerSecond = (instructions - this.windowInstructions) * 1e9 / elapsed;
+            this.windowStart = end;
+            this.windowInstructions = instructions;
+        }
+    }
+
+    @Override
+    public long getInstructions() {
+        return this.instructions;
+    }
+
+    @Override
+    public double getInstructionsPerSecond() {
+        return this.instructionsPerSecond;
+    }
+
+    @Override
+    public long[] getInstructionFamilyCounts() {
+        return this.families.clone();
+    }
+
+    @Override
+    public long getFrames() {
+        return this.frames;
+    }
+
+    @Override
+    public long[] getFrameTimeHistogram() {
+        return this.frameTimes.buckets();
+    }
+
+    @Override
+    public double getFrameTimeMeanMicros() {
+        return this.frameTimes.meanMicros();
+    }
+
+    @Override
+    public double getFrameTimeMaxMicros() {
+        return this.frameTimes.maxMicros();
+    }
+
+    @Override
+    public long getSpriteDraws() {
+        return this.families[0xD];
+    }
+
+    @Override
+    public long getScreenUpdates() {
+        return this.screenUpdates;
+    }
+
+    @Override
+    public long getPaints() {
+        return this.renderTimes.count();
+    }
+
+    @Override
+    public long[] getRenderTimeHistogram() {
+        return this.renderTimes.buckets();
+    }
+
+    @Override
+    public double getRenderTimeMeanMicros() {
+        return this.renderTimes.meanMicros();
+    }
+
+    @Override
+    public double getRenderTimeMaxMicros() {
+        return this.renderTimes.maxMicros();
+    }
+
+    @Override
+    public long getKeyboardWaits() {
+        return this.keyboardWaits;
+    }
+
+    @Override
+    public double getKeyboardWaitMillis() {
+        return this.keyboardWaitNanos / 1e6;
+    }
+}
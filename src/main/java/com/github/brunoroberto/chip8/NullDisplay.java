@@ -0,0 +1,11 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * {@link Display} that discards every frame, used when running headless.
+ */
+public class NullDisplay implements Display {
+
+    @Override
+    public void draw(ScreenMemory screenMemory) {
+    }
+}
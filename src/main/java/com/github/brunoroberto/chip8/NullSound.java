@@ -0,0 +1,16 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * {@link Sound} that plays nothing, used when running headless or when no
+ * audio output is available.
+ */
+public class NullSound implements Sound {
+
+    @Override
+    public void setPlaying(boolean playing) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
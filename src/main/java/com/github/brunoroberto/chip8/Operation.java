@@ -0,0 +1,356 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Handlers for every CHIP-8 instruction, plus one for invalid operation codes.
+ * <p>
+ * Each constant has its own body, so the call it makes into {@link Chip8} is
+ * monomorphic. {@link Instruction} maps every possible 16 bit operation code to
+ * its handler once, so dispatching an instruction is a table lookup and a
+ * single virtual call.
+ * </p>
+ */
+public enum Operation {
+
+    SYS("op0nnn", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op0nnn(instruction);
+        }
+    },
+    CLS("op00E0", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op00E0(instruction);
+        }
+    },
+    RET("op00EE", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op00EE(instruction);
+        }
+    },
+    JP("op1nnn", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op1nnn(instruction);
+        }
+    },
+    CALL("op2nnn", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op2nnn(instruction);
+        }
+    },
+    SE_VX_BYTE("op3xkk", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op3xkk(instruction);
+        }
+    },
+    SNE_VX_BYTE("op4xkk", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op4xkk(instruction);
+        }
+    },
+    SE_VX_VY("op5xy0", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op5xy0(instruction);
+        }
+    },
+    LD_VX_BYTE("op6xkk", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op6xkk(instruction);
+        }
+    },
+    ADD_VX_BYTE("op7xkk", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op7xkk(instruction);
+        }
+    },
+    LD_VX_VY("op8xy0", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy0(instruction);
+        }
+    },
+    OR("op8xy1", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy1(instruction);
+        }
+    },
+    AND("op8xy2", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy2(instruction);
+        }
+    },
+    XOR("op8xy3", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy3(instruction);
+        }
+    },
+    ADD_VX_VY("op8xy4", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy4(instruction);
+        }
+    },
+    SUB("op8xy5", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy5(instruction);
+        }
+    },
+    SHR("op8xy6", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy6(instruction);
+        }
+    },
+    SUBN("op8xy7", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xy7(instruction);
+        }
+    },
+    SHL("op8xyE", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op8xyE(instruction);
+        }
+    },
+    SNE_VX_VY("op9xy0", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.op9xy0(instruction);
+        }
+    },
+    LD_I("opAnnn", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opAnnn(instruction);
+        }
+    },
+    JP_V0("opBnnn", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opBnnn(instruction);
+        }
+    },
+    RND("opCxkk", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opCxkk(instruction);
+        }
+    },
+    DRW("opDxyn", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opDxyn(instruction);
+        }
+    },
+    SKP("opEx9E", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opEx9E(instruction);
+        }
+    },
+    SKNP("opExA1", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opExA1(instruction);
+        }
+    },
+    LD_VX_DT("opFx07", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx07(instruction);
+        }
+    },
+    LD_VX_K("opFx0A", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx0A(instruction);
+        }
+    },
+    LD_DT("opFx15", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx15(instruction);
+        }
+    },
+    LD_ST("opFx18", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx18(instruction);
+        }
+    },
+    ADD_I("opFx1E", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx1E(instruction);
+        }
+    },
+    LD_F("opFx29", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx29(instruction);
+        }
+    },
+    LD_B("opFx33", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx33(instruction);
+        }
+    },
+    LD_I_VX("opFx55", true) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx55(instruction);
+        }
+    },
+    LD_VX_I("opFx65", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opFx65(instruction);
+        }
+    },
+    INVALID("opInvalid", false) {
+        @Override
+        void execute(Chip8 chip8, Instruction instruction) {
+            chip8.opInvalid(instruction);
+        }
+    };
+
+    private final String handler;
+    private final boolean endsBlock;
+
+    Operation(String handler, boolean endsBlock) {
+        this.handler = handler;
+        this.endsBlock = endsBlock;
+    }
+
+    abstract void execute(Chip8 chip8, Instruction instruction);
+
+    /**
+     * @return the name of the {@link Chip8} method executing the operation,
+     * called directly by code generated for hot blocks, see
+     * {@link BlockCompiler}
+     */
+    String handler() {
+        return this.handler;
+    }
+
+    /**
+     * @return true if the operation may transfer control or write to memory, see
+     * {@link BasicBlock}
+     */
+    boolean endsBlock() {
+        return this.endsBlock;
+    }
+
+    /**
+     * Decode the operation of a 16 bit operation code
+     *
+     * @param opCode 16bit operation code
+     * @return the operation, {@link #INVALID} if the code is not an instruction
+     */
+    static Operation forOpCode(int opCode) {
+        switch (opCode & 0xF000) {
+            case 0x0000:
+                switch (opCode) {
+                    case 0x00E0:
+                        return CLS;
+                    case 0x00EE:
+                        return RET;
+                    default:
+                        return SYS;
+                }
+            case 0x1000:
+                return JP;
+            case 0x2000:
+                return CALL;
+            case 0x3000:
+                return SE_VX_BYTE;
+            case 0x4000:
+                return SNE_VX_BYTE;
+            case 0x5000:
+                return (opCode & 0x000F) == 0x0 ? SE_VX_VY : INVALID;
+            case 0x6000:
+                return LD_VX_BYTE;
+            case 0x7000:
+                return ADD_VX_BYTE;
+            case 0x8000:
+                switch (opCode & 0x000F) {
+                    case 0x0:
+                        return LD_VX_VY;
+                    case 0x1:
+                        return OR;
+                    case 0x2:
+                        return AND;
+                    case 0x3:
+                        return XOR;
+                    case 0x4:
+                        return ADD_VX_VY;
+                    case 0x5:
+                        return SUB;
+                    case 0x6:
+                        return SHR;
+                    case 0x7:
+                        return SUBN;
+                    case 0xE:
+                        return SHL;
+                    default:
+                        return INVALID;
+                }
+            case 0x9000:
+                return (opCode & 0x000F) == 0x0 ? SNE_VX_VY : INVALID;
+            case 0xA000:
+                return LD_I;
+            case 0xB000:
+                return JP_V0;
+            case 0xC000:
+                return RND;
+            case 0xD000:
+                return DRW;
+            case 0xE000:
+                switch (opCode & 0x00FF) {
+                    case 0x9E:
+                        return SKP;
+                    case 0xA1:
+                        return SKNP;
+                    default:
+                        return INVALID;
+                }
+            default:
+                switch (opCode & 0x00FF) {
+                    case 0x07:
+                        return LD_VX_DT;
+                    case 0x0A:
+                        return LD_VX_K;
+                    case 0x15:
+                        return LD_DT;
+                    case 0x18:
+                        return LD_ST;
+                    case 0x1E:
+                        return ADD_I;
+                    case 0x29:
+                        return LD_F;
+                    case 0x33:
+                        return LD_B;
+                    case 0x55:
+                        return LD_I_VX;
+                    case 0x65:
+                        return LD_VX_I;
+                    default:
+                        return INVALID;
+                }
+        }
+    }
+}
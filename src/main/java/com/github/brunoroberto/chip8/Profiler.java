@@ -0,0 +1,147 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counting profiler: how often every address executes and how often the
+ * control transfer at every address is taken.
+ * <p>
+ * Counts are kept in primitive arrays indexed by address and updated by the
+ * emulation thread after every instruction. An instruction whose successor
+ * is not the next instruction counts as a taken branch: jumps, calls,
+ * returns, taken skips and FX0A waits. Only the last target of a branch is
+ * kept, which is the only one for everything but RET and BNNN.
+ * </p>
+ * <p>
+ * A taken branch backwards, to an address not above its own, closes a loop,
+ * unless it is a return.
+ * {@link #report(Chip8, PrintStream, int)} ranks those loops by the
+ * instructions executed in their body and lists them disassembled.
+ * </p>
+ */
+public final class Profiler {
+
+    private final long[] executions = new long[Memory.SIZE];
+    private final long[] taken = new long[Memory.SIZE];
+    private final short[] targets = new short[Memory.SIZE];
+
+    void executed(int address, int next) {
+        int from = address & (Memory.SIZE - 1);
+        this.executions[from]++;
+        if (next != address + 2) {
+            this.taken[from]++;
+            this.targets[from] = (short) next;
+        }
+    }
+
+    /**
+     * @return how many times the instruction at the address was executed
+     */
+    public long getExecutions(int address) {
+        return this.executions[address];
+    }
+
+    /**
+     * @return how many times the instruction at the address transferred
+     * control somewhere else than the next instruction
+     */
+    public long getTaken(int address) {
+        return this.taken[address];
+    }
+
+    /**
+     * @return the last address the instruction at the address transferred
+     * control to, meaningful only if {@link #getTaken(int)} is not zero
+     */
+    public int getTarget(int address) {
+        return this.targets[address] & 0xFFFF;
+    }
+
+    public long getTotalExecutions() {
+        long total = 0;
+        for (long count : this.executions) {
+            total += count;
+        }
+        return total;
+    }
+
+    public void reset() {
+        Arrays.fill(this.executions, 0);
+        Arrays.fill(this.taken, 0);
+        Arrays.fill(this.targets, (short) 0);
+    }
+
+    /**
+     * Print the hottest loops with their disassembly, then the hottest
+     * addresses. Must be called from the emulation thread or while the
+     * interpreter is not running.
+     *
+     * @param loops the number of loops and of addresses to list
+     */
+    public void report(Chip8 chip8, PrintStream out, int loops) {
+        long total = getTotalExecutions();
+        out.println(String.format("%d instructions profiled", total));
+        if (total == 0) {
+            return;
+        }
+
+        List<int[]> backEdges = new ArrayList<>();
+        for (int address = 0; address < Memory.SIZE; address++) {
+            int target = getTarget(address);
+            if (this.taken[address] > 0 && target <= address
+                    && chip8.instructionAt(address).operation != Operation.RET) {
+                backEdges.add(new int[]{target, address});
+            }
+        }
+        backEdges.sort((a, b) -> Long.compare(bodyExecutions(b[0], b[1]), bodyExecutions(a[0], a[1])));
+
+        out.println();
+        out.println("Hottest loops:");
+        for (int i = 0; i < Math.min(loops, backEdges.size()); i++) {
+            int start = backEdges.get(i)[0];
+            int end = backEdges.get(i)[1];
+            long body = bodyExecutions(start, end);
+            out.println(String.format("#%d 0x%03X-0x%03X: %d iterations, %d instructions (%.1f%%)", i + 1, start, end,
+                    this.taken[end], body, 100.0 * body / total));
+            for (int address = start; address <= end; address++) {
+                if (this.executions[address] > 0) {
+                    printAddress(chip8, out, address, "    ");
+                }
+            }
+        }
+
+        Integer[] addresses = new Integer[Memory.SIZE];
+        for (int address = 0; address < Memory.SIZE; address++) {
+            addresses[address] = address;
+        }
+        Arrays.sort(addresses, (a, b) -> Long.compare(this.executions[b], this.executions[a]));
+
+        out.println();
+        out.println("Hottest addresses:");
+        for (int i = 0; i < Math.min(loops, addresses.length) && this.executions[addresses[i]] > 0; i++) {
+            printAddress(chip8, out, addresses[i], "");
+        }
+    }
+
+    private long bodyExecutions(int start, int end) {
+        long body = 0;
+        for (int address = start; address <= end; address++) {
+            body += this.executions[address];
+        }
+        return body;
+    }
+
+    private void printAddress(Chip8 chip8, PrintStream out, int address, String indent) {
+        Instruction instruction = chip8.instructionAt(address);
+        String branch = this.taken[address] > 0
+                ? String.format("  taken %d -> 0x%03X", this.taken[address], getTarget(address))
+                : "";
+        String code = branch.isEmpty() ? instruction.disassemble() : String.format("%-16s%s",
+                instruction.disassemble(), branch);
+        out.println(String.format("%s0x%03X %12d  %04X  %s", indent, address, this.executions[address],
+                instruction.opCode, code));
+    }
+}
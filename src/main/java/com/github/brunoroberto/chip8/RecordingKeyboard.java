@@ -0,0 +1,114 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link Keyboard} that records every key press and release into an
+ * {@link InputLog}, for an exact replay of the session.
+ * <p>
+ * Key events from the input thread are not applied right away: they are
+ * queued, then applied and written to the log by the emulation thread at the
+ * end of the next frame, stamped with the number of instructions executed so
+ * far. The interpreter therefore sees them at the same instruction when the
+ * log is replayed. Register it as a frame listener, run the interpreter with
+ * non-blocking FX0A ({@link Chip8#setBlockingKeyWait(boolean)}) and the
+ * generator seed and clock given here. End the session with
+ * {@link #endSession()}, then call {@link #finish(Chip8)} once the interpreter
+ * has stopped.
+ * </p>
+ */
+public class RecordingKeyboard extends Keyboard implements FrameListener {
+
+    private final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+    private final DataOutputStream out;
+    private long lastCycle;
+    private boolean failed;
+    private volatile boolean ending;
+
+    /**
+     * Create the log and write its header.
+     *
+     * @param seed                  seed of the interpreter's CXKK generator
+     * @param instructionsPerSecond clock of the scheduler running the session
+     * @param rom                   the ROM being run
+     */
+    public RecordingKeyboard(Tracer tracer, Path log, long seed, int instructionsPerSecond, byte[] rom)
+            throws IOException {
+        super(tracer);
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(log)));
+        InputLog.writeHeader(this.out, seed, instructionsPerSecond, rom);
+    }
+
+    @Override
+    public void press(int chip8Key) {
+        checkKey(chip8Key);
+        this.pending.add(InputLog.PRESSED | chip8Key);
+    }
+
+    @Override
+    public void release(int chip8Key) {
+        checkKey(chip8Key);
+        this.pending.add(chip8Key);
+    }
+
+    @Override
+    public void frameCompleted(Chip8 chip8) {
+        Integer event;
+        while ((event = this.pending.poll()) != null) {
+            if ((event & InputLog.PRESSED) != 0) {
+                super.press(event & InputLog.KEY);
+            } else {
+                super.release(event);
+            }
+            write(chip8.getCycles(), event);
+        }
+        if (this.ending) {
+            chip8.stop();
+        }
+    }
+
+    /**
+     * Stop the interpreter at the end of the current frame, so the session
+     * ends on a frame boundary like its replay. May be called from any thread.
+     */
+    public void endSession() {
+        this.ending = true;
+    }
+
+    private void write(long cycle, int event) {
+        if (this.failed) {
+            return;
+        }
+        try {
+            this.out.writeByte(event);
+            InputLog.writeVarLong(this.out, cycle - this.lastCycle);
+            this.lastCycle = cycle;
+        } catch (IOException e) {
+            this.failed = true;
+            System.err.println("Input recording stopped: " + e);
+        }
+    }
+
+    /**
+     * Write the end of the session, with the frame count and machine state a
+     * replay must reach, and close the log. Must be called from the
+     * emulation thread or once the interpreter is stopped.
+     */
+    public void finish(Chip8 chip8) throws IOException {
+        try {
+            if (!this.failed) {
+                this.out.writeByte(InputLog.END);
+                InputLog.writeVarLong(this.out, chip8.getFrames());
+                this.out.writeLong(InputLog.stateHash(chip8));
+            }
+        } finally {
+            this.out.close();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.github.brunoroberto.chip8;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded history of machine states, captured every frame, that a running
+ * {@link Chip8} can be rewound to.
+ * <p>
+ * Every {@code keyframeInterval} frames a full {@link SaveState} is stored as
+ * a keyframe; the frames in between are stored as the XOR of their state with
+ * the keyframe. Memory and most registers barely change from frame to frame,
+ * so the deltas are almost all zeros and are run-length encoded down to a few
+ * bytes. Any frame is restored from its keyframe and at most one delta.
+ * </p>
+ * <p>
+ * Encoded frames live in a single preallocated byte arena used as a ring.
+ * When it is full, or when the frame limit is reached, the oldest frames are
+ * evicted, always dropping a keyframe together with the deltas that depend on
+ * it. Capturing does not allocate.
+ * </p>
+ * <p>
+ * Register it with {@link Chip8#addFrameListener(FrameListener)} and call
+ * {@link #rewind(Chip8, int)} on the emulation thread, through
+ * {@link Chip8#runOnFrameBoundary(Runnable)}.
+ * </p>
+ */
+public class RewindBuffer implements FrameListener {
+
+    private static final int MIN_ZERO_RUN = 4; // shorter zero runs are cheaper as literals
+    private static final int SEGMENT_HEADER = 4;
+
+    private final int keyframeInterval;
+
+    private final byte[] arena;
+    private int writePosition;
+
+    // ring of stored frames, oldest at head
+    private final int[] offsets;
+    private final int[] lengths;
+    private final boolean[] keyframes;
+    private int head;
+    private int count;
+
+    private final ByteBuffer state = ByteBuffer.allocate(SaveState.SIZE);
+    private final byte[] keyframe = new byte[SaveState.SIZE];
+    private final byte[] delta = new byte[SaveState.SIZE];
+    private final byte[] encoded = new byte[maxEncodedLength()];
+    private int sinceKeyframe;
+    private boolean hasKeyframe;
+
+    /**
+     * @param capacityBytes    size of the arena holding the encoded frames
+     * @param maxFrames        maximum number of frames kept
+     * @param keyframeInterval number of frames between two keyframes
+     */
+    public RewindBuffer(int capacityBytes, int maxFrames, int keyframeInterval) {
+        if (capacityBytes < minimumCapacity()) {
+            throw new IllegalArgumentException("capacity too small: " + capacityBytes + " bytes");
+        }
+        if (maxFrames < 1 || keyframeInterval < 1) {
+            throw new IllegalArgumentException("frame limit and keyframe interval must be positive");
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.arena = new byte[capacityBytes];
+        this.offsets = new int[maxFrames];
+        this.lengths = new int[maxFrames];
+        this.keyframes = new boolean[maxFrames];
+    }
+
+    /**
+     * @return a buffer holding up to the given number of seconds of frames
+     */
+    public static RewindBuffer ofSeconds(int seconds, int capacityBytes) {
+        return new RewindBuffer(capacityBytes, seconds * Scheduler.FRAMES_PER_SECOND, Scheduler.FRAMES_PER_SECOND);
+    }
+
+    private static int maxEncodedLength() {
+        // worst case: one segment header per MIN_ZERO_RUN + 1 bytes
+        return SaveState.SIZE + (SaveState.SIZE / (MIN_ZERO_RUN + 1) + 1) * SEGMENT_HEADER;
+    }
+
+    /**
+     * @return the smallest arena accepted by the constructor
+     */
+    static int minimumCapacity() {
+        return 2 * maxEncodedLength();
+    }
+
+    /**
+     * @return the approximate heap used by a buffer with the given arena and
+     * frame limit, arena included
+     */
+    static long footprint(int capacityBytes, int maxFrames) {
+        return capacityBytes + 3L * SaveState.SIZE + maxEncodedLength() + maxFrames * 9L;
+    }
+
+    /**
+     * @return the number of frames that can be rewound
+     */
+    public int getFrames() {
+        return this.count;
+    }
+
+    @Override
+    public void frameCompleted(Chip8 chip8) {
+        capture(chip8);
+    }
+
+    public void capture(Chip8 chip8) {
+        this.state.clear();
+        chip8.saveState(this.state);
+        byte[] current = this.state.array();
+
+        if (!this.hasKeyframe || this.sinceKeyframe >= this.keyframeInterval - 1) {
+            storeKeyframe(current);
+            return;
+        }
+        for (int i = 0; i < SaveState.SIZE; i++) {
+            this.delta[i] = (byte) (current[i] ^ this.keyframe[i]);
+        }
+        int length = encode(this.delta, this.encoded);
+        if (!store(length, false)) {
+            // the keyframe this delta depends on was evicted to make room
+            storeKeyframe(current);
+            return;
+        }
+        this.sinceKeyframe++;
+    }
+
+    private void storeKeyframe(byte[] current) {
+        System.arraycopy(current, 0, this.keyframe, 0, SaveState.SIZE);
+        store(encode(current, this.encoded), true);
+        this.hasKeyframe = true;
+        this.sinceKeyframe = 0;
+    }
+
+    /**
+     * Append the encoded frame, evicting the oldest frames as needed.
+     *
+     * @return false if a delta could not be stored because its keyframe was
+     * evicted
+     */
+    private boolean store(int length, boolean keyframe) {
+        if (this.writePosition + length > this.arena.length) {
+            // the frames between the write position and the end of the arena
+            // are the oldest ones, drop them before wrapping around
+            while (this.count > 0 && this.offsets[this.head] >= this.writePosition) {
+                evictOldest();
+            }
+            this.writePosition = 0;
+        }
+        int start = this.writePosition;
+        int end = start + length;
+        while (this.count > 0 && (this.count == this.offsets.length || overlaps(this.head, start, end))) {
+            evictOldest();
+        }
+        if (!keyframe && this.count == 0) {
+            this.hasKeyframe = false;
+            return false;
+        }
+        System.arraycopy(this.encoded, 0, this.arena, start, length);
+        int index = index(this.count);
+        this.offsets[index] = start;
+        this.lengths[index] = length;
+        this.keyframes[index] = keyframe;
+        this.count++;
+        this.writePosition = end;
+        return true;
+    }
+
+    private boolean overlaps(int index, int start, int end) {
+        int offset = this.offsets[index];
+        return offset < end && start < offset + this.lengths[index];
+    }
+
+    /**
+     * Drop the oldest frame, and the deltas that depended on it if it was a
+     * keyframe, so the oldest remaining frame is always a keyframe.
+     */
+    private void evictOldest() {
+        do {
+            this.head = (this.head + 1) % this.offsets.length;
+            this.count--;
+        } while (this.count > 0 && !this.keyframes[this.head]);
+    }
+
+    private int index(int age) {
+        return (this.head + age) % this.offsets.length;
+    }
+
+    /**
+     * Restore the machine to the state captured the given number of frames
+     * before the latest one, or to the oldest state kept. The frames after it
+     * are discarded. Must be called on the emulation thread.
+     *
+     * @return the number of frames actually rewound
+     */
+    public int rewind(Chip8 chip8, int frames) {
+        if (this.count == 0) {
+            return 0;
+        }
+        int target = Math.max(0, this.count - 1 - frames);
+        int keyframeAge = target;
+        while (!this.keyframes[index(keyframeAge)]) {
+            keyframeAge--;
+        }
+
+        int keyframeIndex = index(keyframeAge);
+        decode(this.arena, this.offsets[keyframeIndex], this.lengths[keyframeIndex], this.keyframe);
+        byte[] restored = this.state.array();
+        System.arraycopy(this.keyframe, 0, restored, 0, SaveState.SIZE);
+        if (keyframeAge != target) {
+            int index = index(target);
+            decode(this.arena, this.offsets[index], this.lengths[index], this.delta);
+            for (int i = 0; i < SaveState.SIZE; i++) {
+                restored[i] ^= this.delta[i];
+            }
+        }
+        this.state.clear();
+        chip8.restoreState(this.state);
+
+        int rewound = this.count - 1 - target;
+        int newest = index(target);
+        this.count = target + 1;
+        this.writePosition = this.offsets[newest] + this.lengths[newest];
+        this.sinceKeyframe = target - keyframeAge;
+        this.hasKeyframe = true;
+        return rewound;
+    }
+
+    /**
+     * Run-length encode the zeros of a state: a sequence of segments, each a
+     * count of zero bytes to skip, a count of literal bytes and the literals.
+     *
+     * @return the encoded length
+     */
+    private static int encode(byte[] source, byte[] target) {
+        int in = 0;
+        int out = 0;
+        while (in < SaveState.SIZE) {
+            int zeros = 0;
+            while (in + zeros < SaveState.SIZE && source[in + zeros] == 0) {
+                zeros++;
+            }
+            in += zeros;
+            int literals = 0;
+            while (in + literals < SaveState.SIZE && !isZeroRun(source, in + literals)) {
+                literals++;
+            }
+            putShort(target, out, zeros);
+            putShort(target, out + 2, literals);
+            out += SEGMENT_HEADER;
+            System.arraycopy(source, in, target, out, literals);
+            out += literals;
+            in += literals;
+        }
+        return out;
+    }
+
+    private static boolean isZeroRun(byte[] source, int from) {
+        int end = Math.min(SaveState.SIZE, from + MIN_ZERO_RUN);
+        for (int i = from; i < end; i++) {
+            if (source[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void decode(byte[] source, int offset, int length, byte[] target) {
+        int in = offset;
+        int out = 0;
+        int end = offset + length;
+        while (in < end) {
+            int zeros = getShort(source, in);
+            int literals = getShort(source, in + 2);
+            in += SEGMENT_HEADER;
+            for (int i = 0; i < zeros; i++) {
+                target[out++] = 0;
+            }
+            System.arraycopy(source, in, target, out, literals);
+            out += literals;
+            in += literals;
+        }
+        while (out < SaveState.SIZE) {
+            target[out++] = 0;
+        }
+    }
+
+    private static void putShort(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 8);
+        target[offset + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] source, int offset) {
+        return ((source[offset] & 0xFF) << 8) | (source[offset + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a complete {@link Chip8} machine.
+ * <p>
+ * Fixed layout, big endian, {@value #SIZE} bytes:
+ * </p>
+ *
+ * <pre>
+ *  offset size
+ *     0     4  magic "C8SS"
+ *     4     2  version
+ *     6     2  reserved
+ *     8     8  instructions executed
+ *    16     8  frames run
+ *    24    16  V0..VF
+ *    40     2  I
+ *    42     2  PC
+ *    44     1  delay timer
+ *    45     1  sound timer
+ *    46     1  stack pointer
+ *    47    32  stack, 16 addresses
+ *    79  4096  memory
+ *  4175   256  framebuffer, 32 rows of 64 bits
+ *  4431     8  random generator state
+ * </pre>
+ *
+ * @see Chip8#saveState(ByteBuffer)
+ * @see Chip8#restoreState(ByteBuffer)
+ */
+public final class SaveState {
+
+    public static final int SIZE = 4439;
+
+    static final int MAGIC = 0x43385353; // C8SS
+    static final short VERSION = 2;
+
+    private static final int STACK_POINTER_OFFSET = 46;
+    private static final int RANDOM_STATE_OFFSET = 4431;
+
+    private SaveState() {
+    }
+
+    static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+    }
+
+    /**
+     * Validate a snapshot before any of it is applied, so a bad snapshot never
+     * leaves a machine half restored.
+     */
+    static void checkHeader(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < SIZE) {
+            throw new IllegalArgumentException("save state too short: " + buffer.remaining() + " bytes");
+        }
+        if (buffer.getInt(start) != MAGIC) {
+            throw new IllegalArgumentException("not a CHIP-8 save state");
+        }
+        short version = buffer.getShort(start + 4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported save state version: " + version);
+        }
+        byte stackPointer = buffer.get(start + STACK_POINTER_OFFSET);
+        if (stackPointer < 0 || stackPointer > 16) {
+            throw new IllegalArgumentException("invalid stack pointer: " + stackPointer);
+        }
+        if (buffer.getLong(start + RANDOM_STATE_OFFSET) == 0) {
+            throw new IllegalArgumentException("invalid random generator state");
+        }
+    }
+
+    /**
+     * Capture the machine into a new buffer, ready to be read.
+     */
+    public static ByteBuffer capture(Chip8 chip8) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        chip8.saveState(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    public static void write(Path file, ByteBuffer state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (state.hasRemaining()) {
+                channel.write(state);
+            }
+        }
+    }
+
+    public static ByteBuffer read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.brunoroberto.chip8;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed timestep scheduler for the interpreter.
+ * <p>
+ * Time is divided into 60 Hz frames. Each frame runs the instructions due for
+ * the configured CPU clock, then ticks the delay and sound timers and
+ * presents the frame ({@link Chip8#runFrame(int)}). When the clock is
+ * fractional (e.g. 500 instructions per second), the remainder is carried over
+ * to the next frame, so the long term rate is exact.
+ * </p>
+ * <p>
+ * When throttled, frame deadlines are absolute ({@code start + n / 60 s}), so
+ * oversleeping in one frame is paid back in the next ones instead of
+ * accumulating drift. After a long stall (a debugger, a GC pause) the schedule
+ * is reset instead of running a burst of frames to catch up. Unthrottled, the
+ * frames run back to back.
+ * </p>
+ * <p>
+ * A throttled scheduler can run faster or slower than real time, see
+ * {@link #setSpeed(double)}: frames, and with them the instructions and the
+ * timers, come N times as often, so programs behave as at normal speed.
+ * </p>
+ *
+ * <pre>
+ * System properties read by {@link #fromSystemProperties(boolean)}:
+ *  chip8.ips         - instructions per second (default 600)
+ *  chip8.unthrottled - true to run as fast as possible
+ *  chip8.speed       - multiple of real time when throttled (default 1)
+ * </pre>
+ */
+public class Scheduler {
+
+    public static final int FRAMES_PER_SECOND = 60;
+    public static final int DEFAULT_INSTRUCTIONS_PER_SECOND = 600;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_LAG_FRAMES = 5;
+
+    private final int instructionsPerSecond;
+    private final boolean throttled;
+
+    private int instructionRemainder;
+    private volatile double speed = 1;
+
+    public Scheduler(int instructionsPerSecond, boolean throttled) {
+        if (instructionsPerSecond <= 0) {
+            throw new IllegalArgumentException("instructions per second must be positive: " + instructionsPerSecond);
+        }
+        this.instructionsPerSecond = instructionsPerSecond;
+        this.throttled = throttled;
+    }
+
+    /**
+     * @return a scheduler running in real time
+     */
+    public static Scheduler paced(int instructionsPerSecond) {
+        return new Scheduler(instructionsPerSecond, true);
+    }
+
+    /**
+     * @return a scheduler running frames as fast as possible
+     */
+    public static Scheduler unthrottled(int instructionsPerSecond) {
+        return new Scheduler(instructionsPerSecond, false);
+    }
+
+    public static Scheduler fromSystemProperties(boolean defaultUnthrottled) {
+        int instructionsPerSecond = Integer.getInteger("chip8.ips", DEFAULT_INSTRUCTIONS_PER_SECOND);
+        String unthrottled = System.getProperty("chip8.unthrottled");
+        boolean throttled = !(unthrottled == null ? defaultUnthrottled : Boolean.parseBoolean(unthrottled));
+        Scheduler scheduler = new Scheduler(instructionsPerSecond, throttled);
+        scheduler.setSpeed(Double.parseDouble(System.getProperty("chip8.speed", "1")));
+        return scheduler;
+    }
+
+    public int getInstructionsPerSecond() {
+        return instructionsPerSecond;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Run throttled frames at the given multiple of real time, 1 being 60
+     * frames per second. May be called from any thread, the schedule restarts
+     * from the next frame.
+     */
+    public void setSpeed(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * @return the number of instructions to run in the next frame
+     */
+    int nextFrameInstructions() {
+        int total = this.instructionRemainder + this.instructionsPerSecond;
+        this.instructionRemainder = total % FRAMES_PER_SECOND;
+        return total / FRAMES_PER_SECOND;
+    }
+
+    /**
+     * Run frames until the interpreter is stopped.
+     */
+    public void run(Chip8 chip8) throws InterruptedException {
+        run(chip8, Long.MAX_VALUE);
+    }
+
+    /**
+     * Run at most the given number of frames, stopping early if the interpreter
+     * is stopped.
+     *
+     * @return the number of frames run
+     */
+    public long run(Chip8 chip8, long frames) throws InterruptedException {
+        long start = System.nanoTime();
+        long scheduled = 0;
+        long frame = 0;
+        double speed = this.speed;
+        while (frame < frames && chip8.isRunning()) {
+            chip8.runFrame(nextFrameInstructions());
+            frame++;
+            if (!this.throttled) {
+                continue;
+            }
+            if (speed != this.speed) {
+                speed = this.speed;
+                start = System.nanoTime();
+                scheduled = 0;
+            }
+            double framesPerSecond = FRAMES_PER_SECOND * speed;
+            scheduled++;
+            long deadline = start + (long) (scheduled * NANOS_PER_SECOND / framesPerSecond);
+            long remaining = deadline - System.nanoTime();
+            if (-remaining > MAX_LAG_FRAMES * NANOS_PER_SECOND / framesPerSecond) {
+                start = System.nanoTime();
+                scheduled = 0;
+                continue;
+            }
+            while (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
+        return frame;
+    }
+}
@@ -1,29 +1,120 @@
 package com.github.brunoroberto.chip8;
 
-import java.util.ArrayList;
-import java.util.List;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
-public class Screen extends JPanel {
+/**
+ * Swing {@link Display}.
+ * <p>
+ * Frames are rendered into a reusable 64x32 image, one int per pixel, and the
+ * image is scaled to the panel in a single drawImage call. Only rows that
+ * changed since the last paint are rewritten, so painting never allocates and
+ * costs the same however many pixels are lit.
+ * </p>
+ * <p>
+ * Drawing only publishes a copy of the framebuffer through a
+ * {@link FrameExchange}, with no lock; the panel repaints at most once per
+ * refresh of its monitor, from the latest complete frame. When the interpreter
+ * runs faster than the monitor (fast-forward), intermediate frames are dropped
+ * and only the latest one is shown, so the EDT never falls behind.
+ * </p>
+ */
+@SuppressWarnings("serial")
+public class Screen extends JPanel implements Display {
 
-    private List<ScreenMemory.ActivePixel> activePixels = new ArrayList<>();
+    private static final int ON = 0xFFFFFF;
+    private static final int OFF = 0x000000;
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final BufferedImage image;
+    private final int[] raster;
+
+    private final FrameExchange frames = new FrameExchange();
+    private final long[] rendered = new long[ScreenMemory.ROWS];
+
+    // created by addNotify, on the EDT, rather than leaking this from the constructor
+    private Timer refreshTimer;
+
+    private volatile Metrics metrics;
+
+    public Screen() {
+        this.image = new BufferedImage(ScreenMemory.COLUMNS, ScreenMemory.ROWS, BufferedImage.TYPE_INT_RGB);
+        this.raster = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Start repainting at the refresh rate of the monitor showing the panel.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        int refreshRate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+        if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        if (this.refreshTimer == null) {
+            this.refreshTimer = new Timer(1000 / refreshRate, e -> repaintIfDirty());
+        }
+        this.refreshTimer.setDelay(1000 / refreshRate);
+        this.refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        this.refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Record the time taken by every paint as the render time of the metrics,
+     * null to stop.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void repaintIfDirty() {
+        if (this.frames.hasFresh()) {
+            repaint();
+        }
+    }
 
     @Override
     protected void paintComponent(Graphics g) {
+        Metrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
         super.paintComponent(g);
         Graphics2D graphics2D = (Graphics2D) g;
         graphics2D.clearRect(0, 0, this.getWidth(), this.getHeight());
 
-        // draw the pixels
-        graphics2D.setColor(Color.WHITE);
-        this.activePixels.forEach(activePixel -> {
-            graphics2D.fillRect(activePixel.getX(), activePixel.getY(), activePixel.getSize(), activePixel.getSize());
-        });
+        renderDirtyRows();
+
+        int scale = Math.max(1, Math.min(this.getWidth() / ScreenMemory.COLUMNS, this.getHeight() / ScreenMemory.ROWS));
+        graphics2D.drawImage(this.image, 0, 0, ScreenMemory.COLUMNS * scale, ScreenMemory.ROWS * scale, null);
+        if (metrics != null) {
+            metrics.painted(System.nanoTime() - start);
+        }
     }
 
-    public void draw(List<ScreenMemory.ActivePixel> activePixels) {
-        this.activePixels = activePixels;
-        repaint();
+    private void renderDirtyRows() {
+        long[] frame = this.frames.take();
+        for (int y = 0; y < ScreenMemory.ROWS; y++) {
+            long pixels = frame[y];
+            if (pixels == this.rendered[y]) {
+                continue;
+            }
+            int offset = y * ScreenMemory.COLUMNS;
+            for (int x = 0; x < ScreenMemory.COLUMNS; x++) {
+                this.raster[offset + x] = (pixels << x) < 0 ? ON : OFF;
+            }
+            this.rendered[y] = pixels;
+        }
+    }
+
+    @Override
+    public void draw(ScreenMemory screenMemory) {
+        this.frames.publish(screenMemory);
     }
 }
@@ -1,44 +1,127 @@
 package com.github.brunoroberto.chip8;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+/**
+ * The 64x32 monochrome framebuffer of the CHIP-8
+ * <p>
+ * Each row is packed into a single long, with the most significant bit holding
+ * column 0, so a sprite row is drawn with one rotate and one XOR.
+ * </p>
+ */
 public class ScreenMemory {
 
-	private static final int COLUMNS = 64;
-	private static final int ROWS = 32;
+	static final int COLUMNS = 64;
+	static final int ROWS = 32;
 
 	private final int PIXEL_SIZE;
 
-	private byte[] data;
+	private long[] rows;
+
+	/**
+	 * Framebuffer with no on-screen scaling, for headless use.
+	 */
+	public ScreenMemory() {
+		this.PIXEL_SIZE = 1;
+		this.rows = new long[ROWS];
+	}
 
 	public ScreenMemory(double screenHeight) {
 		int scale = Math.floorDiv((int) screenHeight, ROWS);
 		this.PIXEL_SIZE = (int) (scale - (scale * 0.10));
-		this.data = new byte[COLUMNS * ROWS];
+		this.rows = new long[ROWS];
 	}
 
+	/**
+	 * XOR a single pixel, wrapping around the screen edges.
+	 *
+	 * @return true if the pixel was erased (collision)
+	 */
 	public boolean setPixel(int x, int y) {
-		int index = (x % COLUMNS) + (y % ROWS) * COLUMNS;
-		this.data[index] ^= 1;
-		return this.data[index] != 1;
+		long bit = Long.MIN_VALUE >>> Math.floorMod(x, COLUMNS);
+		int row = Math.floorMod(y, ROWS);
+		boolean collision = (this.rows[row] & bit) != 0;
+		this.rows[row] ^= bit;
+		return collision;
+	}
+
+	/**
+	 * XOR an 8 pixel sprite row at (x, y), wrapping around the screen edges.
+	 *
+	 * @param sprite the sprite byte, most significant bit leftmost
+	 * @return true if any pixel was erased (collision)
+	 */
+	public boolean drawSprite(int x, int y, int sprite) {
+		long mask = Long.rotateRight((sprite & 0xFFL) << 56, Math.floorMod(x, COLUMNS));
+		int row = Math.floorMod(y, ROWS);
+		boolean collision = (this.rows[row] & mask) != 0;
+		this.rows[row] ^= mask;
+		return collision;
+	}
+
+	/**
+	 * @return the packed pixels of a row, most significant bit is column 0
+	 */
+	public long getRow(int y) {
+		return this.rows[y];
+	}
+
+	/**
+	 * Replace the packed pixels of a row, see {@link #getRow(int)}
+	 */
+	void setRow(int y, long pixels) {
+		this.rows[y] = pixels;
+	}
+
+	/**
+	 * Copy the packed rows into the given array, see {@link #getRow(int)}
+	 */
+	public void copyRows(long[] destination) {
+		System.arraycopy(this.rows, 0, destination, 0, ROWS);
+	}
+
+	/**
+	 * @return a 64 bit hash of the pixels, equal for equal frames
+	 */
+	public long hash() {
+		long hash = 0xCBF29CE484222325L;
+		for (long row : this.rows) {
+			hash = (hash ^ row) * 0x9E3779B97F4A7C15L;
+			hash ^= hash >>> 32;
+		}
+		return hash;
+	}
+
+	public void save(ByteBuffer buffer) {
+		for (long row : this.rows) {
+			buffer.putLong(row);
+		}
+	}
+
+	public void restore(ByteBuffer buffer) {
+		for (int row = 0; row < ROWS; row++) {
+			this.rows[row] = buffer.getLong();
+		}
 	}
 
 	public List<ActivePixel> getActivePixels() {
 		List<ActivePixel> activePixels = new ArrayList<>();
-		for (int i = 0; i < this.data.length; i++) {
-			if (this.data[i] > 0) {
-				int x = (i % COLUMNS) * PIXEL_SIZE;
-				int y = (i / COLUMNS) * PIXEL_SIZE;
-				activePixels.add(new ActivePixel(x, y));
+		for (int row = 0; row < ROWS; row++) {
+			long pixels = this.rows[row];
+			while (pixels != 0) {
+				int column = Long.numberOfLeadingZeros(pixels);
+				activePixels.add(new ActivePixel(column * PIXEL_SIZE, row * PIXEL_SIZE));
+				pixels &= ~(Long.MIN_VALUE >>> column);
 			}
 		}
 		return activePixels;
 	}
 
 	public void clear() {
-		Arrays.fill(data, (byte) 0);
+		Arrays.fill(this.rows, 0L);
 	}
 
 	public class ActivePixel {
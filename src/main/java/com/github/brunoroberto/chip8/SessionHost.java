@@ -0,0 +1,365 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs many interactive interpreters in one JVM.
+ * <p>
+ * Every session is a {@link Chip8} with its own memory, stack, screen and
+ * {@link Keyboard}, paced in real time by its own {@link Scheduler} on its own
+ * virtual thread. A session waiting for its next frame or for a key (FX0A)
+ * parks and frees its carrier thread, so hundreds of sessions share a few
+ * cores.
+ * </p>
+ * <p>
+ * Each session is given a memory budget: the interpreter itself takes about
+ * {@link #SESSION_FOOTPRINT} bytes, and what is left holds a
+ * {@link RewindBuffer} of up to {@link #REWIND_SECONDS} seconds, or none if
+ * too little is left. The host refuses new sessions once the budgets of the
+ * live ones would exceed its total budget. A session that stops by itself (a
+ * fault halted it) releases its budget but stays listed, with its fault, until
+ * destroyed.
+ * </p>
+ * <p>
+ * Pausing, rewinding and destroying take effect at the next frame boundary of
+ * the session, see {@link Chip8#runOnFrameBoundary(Runnable)}, and may be
+ * called from any thread.
+ * </p>
+ * <p>
+ * Usage: {@code SessionHost <rom file> <sessions> [seconds]} runs the ROM in
+ * that many sessions and reports the frames run.
+ * </p>
+ */
+public class SessionHost implements Closeable {
+
+    /**
+     * Estimated heap used by a session without rewind history: memory and its
+     * decoded instruction cache, translator tables, registers and screen.
+     */
+    public static final int SESSION_FOOTPRINT = 64 * 1024;
+    public static final int REWIND_SECONDS = 30;
+
+    private static final int DEFAULT_SECONDS = 10;
+
+    public enum State {
+        RUNNING, PAUSED, STOPPED
+    }
+
+    private final int instructionsPerSecond;
+    private final int sessionBudget;
+    private final long totalBudget;
+    private final ThreadFactory threadFactory;
+
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final AtomicLong reserved = new AtomicLong();
+
+    /**
+     * @param sessionBudget bytes of heap each session may use, at least
+     *                      {@link #SESSION_FOOTPRINT}
+     * @param totalBudget   bytes of heap all sessions together may use
+     */
+    public SessionHost(int instructionsPerSecond, int sessionBudget, long totalBudget) {
+        if (sessionBudget < SESSION_FOOTPRINT) {
+            throw new IllegalArgumentException("session budget below " + SESSION_FOOTPRINT + " bytes: "
+                    + sessionBudget);
+        }
+        this.instructionsPerSecond = instructionsPerSecond;
+        this.sessionBudget = sessionBudget;
+        this.totalBudget = totalBudget;
+        this.threadFactory = Thread.ofVirtual().name("chip8-session-", 1).factory();
+    }
+
+    /**
+     * Sessions with the given budget each, up to half of the maximum heap.
+     */
+    public SessionHost(int instructionsPerSecond, int sessionBudget) {
+        this(instructionsPerSecond, sessionBudget, Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Start a session with no display.
+     *
+     * @throws IllegalArgumentException if the ROM does not fit in memory
+     * @throws IllegalStateException    if the total budget is exhausted
+     */
+    public Session create(byte[] rom) {
+        return create(rom, new NullDisplay());
+    }
+
+    /**
+     * Start a session drawing to the given display, from the session thread.
+     *
+     * @throws IllegalArgumentException if the ROM does not fit in memory
+     * @throws IllegalStateException    if the total budget is exhausted
+     */
+    public Session create(byte[] rom, Display display) {
+        if (rom.length > Chip8.MAX_ROM_SIZE) {
+            throw new IllegalArgumentException("ROM too large: " + rom.length + " bytes");
+        }
+        long total = this.reserved.addAndGet(this.sessionBudget);
+        if (total > this.totalBudget) {
+            this.reserved.addAndGet(-this.sessionBudget);
+            throw new IllegalStateException(String.format("memory budget exhausted: %d sessions of %d bytes",
+                    this.sessions.size(), this.sessionBudget));
+        }
+        Session session = new Session(this.nextId.getAndIncrement(), display, createRewindBuffer());
+        session.chip8.load(rom);
+        this.sessions.put(session.id, session);
+        session.thread = this.threadFactory.newThread(session::run);
+        session.thread.start();
+        return session;
+    }
+
+    private RewindBuffer createRewindBuffer() {
+        int maxFrames = REWIND_SECONDS * Scheduler.FRAMES_PER_SECOND;
+        long available = this.sessionBudget - SESSION_FOOTPRINT - RewindBuffer.footprint(0, maxFrames);
+        if (available < RewindBuffer.minimumCapacity()) {
+            return null;
+        }
+        return RewindBuffer.ofSeconds(REWIND_SECONDS, (int) Math.min(available, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return the session, or null if there is none with this id
+     */
+    public Session get(int id) {
+        return this.sessions.get(id);
+    }
+
+    public Collection<Session> getSessions() {
+        return Collections.unmodifiableCollection(this.sessions.values());
+    }
+
+    public void pause(int id) {
+        session(id).pause();
+    }
+
+    public void resume(int id) {
+        session(id).resume();
+    }
+
+    /**
+     * Stop the session and release its budget. Does not wait for its thread.
+     */
+    public void destroy(int id) {
+        Session session = this.sessions.remove(id);
+        if (session == null) {
+            throw new IllegalArgumentException("no session " + id);
+        }
+        session.stop();
+        release(session);
+    }
+
+    private void release(Session session) {
+        if (session.released.compareAndSet(false, true)) {
+            this.reserved.addAndGet(-this.sessionBudget);
+        }
+    }
+
+    private Session session(int id) {
+        Session session = this.sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("no session " + id);
+        }
+        return session;
+    }
+
+    /**
+     * Destroy every session and wait for their threads to end.
+     */
+    @Override
+    public void close() {
+        List<Session> stopped = new ArrayList<>(this.sessions.values());
+        for (Session session : stopped) {
+            destroy(session.id);
+        }
+        boolean interrupted = false;
+        for (Session session : stopped) {
+            while (session.thread != null) {
+                try {
+                    session.thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One interpreter of the host.
+     */
+    public final class Session {
+
+        private final int id;
+        private final Keyboard keyboard = new Keyboard();
+        private final Chip8 chip8;
+        private final RewindBuffer rewindBuffer;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private volatile Thread thread;
+        private volatile long frames;
+        private volatile boolean paused;
+        private volatile State state = State.RUNNING;
+
+        private Session(int id, Display display, RewindBuffer rewindBuffer) {
+            this.id = id;
+            this.chip8 = new Chip8(this.keyboard, display, new ScreenMemory());
+            this.chip8.setTranslationEnabled(true);
+            this.chip8.setIdleLoopSkipping(true);
+            this.chip8.addFrameListener(chip8 -> this.frames = chip8.getFrames());
+            this.rewindBuffer = rewindBuffer;
+            if (rewindBuffer != null) {
+                this.chip8.addFrameListener(rewindBuffer);
+            }
+        }
+
+        private void run() {
+            try {
+                Scheduler.paced(instructionsPerSecond).run(this.chip8);
+            } catch (InterruptedException e) {
+                // destroyed while waiting for a key
+            } finally {
+                this.state = State.STOPPED;
+                release(this);
+            }
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the keypad of the session, to press and release keys from
+         * any thread
+         */
+        public Keyboard getKeyboard() {
+            return keyboard;
+        }
+
+        /**
+         * @return the interpreter; only read its state from
+         * {@link Chip8#runOnFrameBoundary(Runnable)} or once stopped
+         */
+        public Chip8 getChip8() {
+            return chip8;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return the frames run as of the last frame boundary, readable from
+         * any thread
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return true if the session keeps a rewind history
+         */
+        public boolean canRewind() {
+            return this.rewindBuffer != null;
+        }
+
+        /**
+         * Park the session thread at the next frame boundary, until resumed.
+         * Frame tasks queued meanwhile run after it resumes.
+         */
+        public void pause() {
+            if (this.paused || this.state == State.STOPPED) {
+                return;
+            }
+            this.paused = true;
+            this.chip8.runOnFrameBoundary(this::parkWhilePaused);
+        }
+
+        private void parkWhilePaused() {
+            if (!this.paused) {
+                return;
+            }
+            this.state = State.PAUSED;
+            while (this.paused && this.chip8.isRunning()) {
+                LockSupport.park(this);
+            }
+            if (this.chip8.isRunning()) {
+                this.state = State.RUNNING;
+            }
+        }
+
+        public void resume() {
+            this.paused = false;
+            LockSupport.unpark(this.thread);
+        }
+
+        /**
+         * Rewind the given number of frames at the next frame boundary, see
+         * {@link RewindBuffer#rewind(Chip8, int)}.
+         *
+         * @throws IllegalStateException if the budget left no room for a
+         *                               rewind history
+         */
+        public void rewind(int frames) {
+            if (this.rewindBuffer == null) {
+                throw new IllegalStateException("session " + this.id + " has no rewind history");
+            }
+            this.chip8.runOnFrameBoundary(() -> this.rewindBuffer.rewind(this.chip8, frames));
+        }
+
+        private void stop() {
+            this.chip8.stop();
+            Thread thread = this.thread;
+            if (thread != null) {
+                // wakes a paused session and ends a blocking FX0A wait
+                thread.interrupt();
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: SessionHost <rom file> <sessions> [seconds]");
+            System.exit(-1);
+        }
+        byte[] rom = Files.readAllBytes(Paths.get(args[0]));
+        int count = Integer.parseInt(args[1]);
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+
+        try (SessionHost host = new SessionHost(
+                Integer.getInteger("chip8.ips", Scheduler.DEFAULT_INSTRUCTIONS_PER_SECOND),
+                Integer.getInteger("chip8.sessionBudget", SESSION_FOOTPRINT))) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                host.create(rom);
+            }
+            Thread.sleep(seconds * 1000L);
+            long frames = 0;
+            for (Session session : host.getSessions()) {
+                frames += session.getFrames();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("%d sessions, %d frames in %.1f s (%.1f frames per second per session)",
+                    count, frames, elapsed, frames / elapsed / count));
+        }
+    }
+}
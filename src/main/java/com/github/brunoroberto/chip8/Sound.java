@@ -0,0 +1,23 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Output sink for the CHIP-8 buzzer.
+ * <p>
+ * The interpreter calls {@link #setPlaying(boolean)} from the emulation thread
+ * at the end of a 60Hz frame whenever the sound timer starts or stops the
+ * tone, so implementations must not block.
+ * </p>
+ */
+public interface Sound {
+
+    /**
+     * @param playing whether the tone is on, that is the sound timer is not zero
+     */
+    void setPlaying(boolean playing);
+
+    /**
+     * Stop the tone and release the output. Called once the interpreter has
+     * stopped; the sound is not used afterwards.
+     */
+    void close();
+}
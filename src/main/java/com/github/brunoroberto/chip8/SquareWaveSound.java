@@ -0,0 +1,126 @@
+package com.github.brunoroberto.chip8;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Sound} playing a square wave through a {@link SourceDataLine}.
+ * <p>
+ * One second of the wave is generated up front; a dedicated daemon thread
+ * feeds it to the line in chunks of a quarter of a 60Hz frame, wrapping
+ * around the buffer, so playing allocates nothing. The line is opened with a
+ * buffer of about one frame: together with the short chunks, the tone starts
+ * and stops within a frame of the sound timer changing. While the tone is off
+ * the line is stopped and the thread is parked. {@link #close()} ends the
+ * thread and closes the line.
+ * </p>
+ */
+public final class SquareWaveSound implements Sound {
+
+    public static final int SAMPLE_RATE = 44100;
+    public static final int DEFAULT_FREQUENCY = 440;
+
+    private static final byte AMPLITUDE = 32;
+    private static final int CHUNK = SAMPLE_RATE / Scheduler.FRAMES_PER_SECOND / 4;
+    private static final int LINE_BUFFER = SAMPLE_RATE / Scheduler.FRAMES_PER_SECOND;
+
+    private final SourceDataLine line;
+    private final byte[] wave = new byte[SAMPLE_RATE];
+    private final Thread thread;
+
+    private volatile boolean playing;
+    private volatile boolean closed;
+
+    private SquareWaveSound(SourceDataLine line, int frequency) {
+        this.line = line;
+        for (int i = 0; i < this.wave.length; i++) {
+            // two half periods per period; one second always holds whole periods
+            boolean high = ((long) i * frequency * 2 / SAMPLE_RATE) % 2 == 0;
+            this.wave[i] = high ? AMPLITUDE : (byte) -AMPLITUDE;
+        }
+        this.thread = new Thread(this::play, "chip8-audio");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Open the default output line for a tone of the given frequency.
+     *
+     * @return the sound, or a {@link NullSound} when no mixer can play it, for
+     * example on a headless machine with no audio device
+     */
+    public static Sound open(int frequency) {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 8, 1, true, false);
+        try {
+            SourceDataLine line = AudioSystem.getSourceDataLine(format);
+            line.open(format, LINE_BUFFER);
+            return new SquareWaveSound(line, frequency);
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            return new NullSound();
+        }
+    }
+
+    public static Sound open() {
+        return open(DEFAULT_FREQUENCY);
+    }
+
+    @Override
+    public void setPlaying(boolean playing) {
+        this.playing = playing;
+        if (playing) {
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    /**
+     * Stop the thread and close the line, waiting for the thread to end.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        LockSupport.unpark(this.thread);
+        // closing the line also ends a write the thread is blocked in
+        this.line.close();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                this.thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void play() {
+        int position = 0;
+        while (!this.closed) {
+            if (!this.playing) {
+                this.line.stop();
+                this.line.flush();
+                while (!this.playing && !this.closed) {
+                    LockSupport.park(this);
+                }
+                if (this.closed) {
+                    return;
+                }
+                this.line.start();
+            }
+            int length = Math.min(CHUNK, this.wave.length - position);
+            this.line.write(this.wave, position, length);
+            position += length;
+            if (position == this.wave.length) {
+                position = 0;
+            }
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.github.brunoroberto.chip8;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /**
  * Stack representation of the CHIP-8
@@ -19,29 +19,55 @@ public class Stack {
         this.stackPointer = 0;
     }
 
-    private boolean isFull() {
+    public boolean isFull() {
         return this.stackPointer == this.data.length;
     }
 
-    private boolean isEmpty() {
+    public boolean isEmpty() {
         return this.stackPointer == 0x0;
     }
 
+    /**
+     * The interpreter checks {@link #isFull()} first and faults instead, see
+     * {@link Fault.Kind#STACK_OVERFLOW}.
+     *
+     * @throws IllegalStateException if the stack is full
+     */
     public void put(short data) {
         if (isFull()) {
-            throw new StackOverflowError("the stack is full");
+            throw new IllegalStateException("the stack is full");
         }
         this.data[this.stackPointer++] = data;
     }
 
+    /**
+     * The interpreter checks {@link #isEmpty()} first and faults instead, see
+     * {@link Fault.Kind#STACK_UNDERFLOW}.
+     *
+     * @throws IllegalStateException if the stack is empty
+     */
     public short pop() {
         if (isEmpty()) {
-            throw new StackOverflowError("the stack is empty");
+            throw new IllegalStateException("the stack is empty");
         }
         return this.data[--this.stackPointer];
     }
 
-    public void dump() {
-        System.out.println(String.format("Stack: SP %d - {%s}", stackPointer, Arrays.toString(data)));
+    public void save(ByteBuffer buffer) {
+        buffer.put(this.stackPointer);
+        for (short value : this.data) {
+            buffer.putShort(value);
+        }
+    }
+
+    public void restore(ByteBuffer buffer) {
+        byte stackPointer = buffer.get();
+        if (stackPointer < 0 || stackPointer > SIZE) {
+            throw new IllegalArgumentException("invalid stack pointer: " + stackPointer);
+        }
+        this.stackPointer = stackPointer;
+        for (int i = 0; i < SIZE; i++) {
+            this.data[i] = buffer.getShort();
+        }
     }
 }
@@ -0,0 +1,152 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring buffer of fixed size instruction records, drained to a
+ * file by a background thread.
+ * <p>
+ * There is a single producer (the emulation thread) and a single consumer (the
+ * writer thread). The producer never blocks and never allocates: when the
+ * writer falls behind and the ring is full, new records are dropped and
+ * counted.
+ * </p>
+ *
+ * <pre>
+ * File layout (big endian):
+ *  header - "C8TR", version (1 byte), record size (1 byte)
+ *  record - PC (2), opcode (2), I (2), delay timer (1), sound timer (1), V0..VF (16)
+ * </pre>
+ */
+final class TraceBuffer implements AutoCloseable {
+
+    static final int RECORD_SIZE = 24;
+
+    private static final byte VERSION = 1;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ByteBuffer ring;
+    private final int capacity; // records, power of two
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // records written by the producer
+    private final AtomicLong tail = new AtomicLong(); // records flushed by the writer
+    private long cachedTail;
+    private long dropped;
+
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    TraceBuffer(Path file, int capacity) throws IOException {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 2));
+        this.mask = this.capacity - 1;
+        this.ring = ByteBuffer.allocateDirect(this.capacity * RECORD_SIZE);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(6);
+        header.put((byte) 'C').put((byte) '8').put((byte) 'T').put((byte) 'R').put(VERSION).put((byte) RECORD_SIZE);
+        header.flip();
+        while (header.hasRemaining()) {
+            this.channel.write(header);
+        }
+
+        this.writer = new Thread(this::drainLoop, "chip8-trace-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Append an instruction record. Called from the emulation thread only.
+     */
+    void put(short pc, short opCode, short i, byte delayTimer, byte soundTimer, byte[] v) {
+        long position = this.head.get();
+        if (position - this.cachedTail >= this.capacity) {
+            this.cachedTail = this.tail.get();
+            if (position - this.cachedTail >= this.capacity) {
+                this.dropped++;
+                return;
+            }
+        }
+        int offset = (int) (position & this.mask) * RECORD_SIZE;
+        this.ring.putShort(offset, pc);
+        this.ring.putShort(offset + 2, opCode);
+        this.ring.putShort(offset + 4, i);
+        this.ring.put(offset + 6, delayTimer);
+        this.ring.put(offset + 7, soundTimer);
+        for (int r = 0; r < 16; r++) {
+            this.ring.put(offset + 8 + r, v[r]);
+        }
+        this.head.lazySet(position + 1);
+    }
+
+    /**
+     * @return the number of records dropped because the writer fell behind
+     */
+    long getDropped() {
+        return this.dropped;
+    }
+
+    private void drainLoop() {
+        ByteBuffer view = this.ring.duplicate();
+        try {
+            while (true) {
+                long from = this.tail.get();
+                long to = this.head.get();
+                if (from == to) {
+                    if (this.closed) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                // write up to the end of the ring, the rest goes in the next round
+                int start = (int) (from & this.mask);
+                int count = (int) Math.min(to - from, this.capacity - start);
+                view.limit((start + count) * RECORD_SIZE).position(start * RECORD_SIZE);
+                while (view.hasRemaining()) {
+                    this.channel.write(view);
+                }
+                view.clear();
+                this.tail.lazySet(from + count);
+            }
+        } catch (IOException e) {
+            System.err.println("Trace writer stopped: " + e.getMessage());
+        } finally {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close trace file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Flush the pending records and close the file. Waits for the writer even
+     * if the calling thread is interrupted, then restores the interrupt flag.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                this.writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
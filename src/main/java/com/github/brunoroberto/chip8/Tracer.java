@@ -0,0 +1,124 @@
+package com.github.brunoroberto.chip8;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Structured tracing for the interpreter.
+ * <p>
+ * Messages have a {@link Level} and a {@link Category} and are printed to
+ * stderr when both are enabled. At {@link Level#TRACE} with the
+ * {@link Category#CPU} category, every executed instruction is also recorded
+ * as a binary (PC, opcode, registers) record in a {@link TraceBuffer} that is
+ * flushed to a file in the background.
+ * </p>
+ * <p>
+ * Callers check {@link #isEnabled(Level, Category)} or
+ * {@link #isInstructionTracing()} before building a message, so a disabled
+ * tracer costs a single branch.
+ * </p>
+ *
+ * <pre>
+ * System properties read by {@link #fromSystemProperties()}:
+ *  chip8.trace.level      - OFF, ERROR, INFO, DEBUG or TRACE (default ERROR)
+ *  chip8.trace.categories - comma separated categories (default all)
+ *  chip8.trace.file       - instruction trace file (default chip8-trace.bin)
+ *  chip8.trace.records    - ring buffer size in records (default 65536)
+ * </pre>
+ */
+public class Tracer implements AutoCloseable {
+
+    public enum Level {
+        OFF, ERROR, INFO, DEBUG, TRACE
+    }
+
+    public enum Category {
+        CPU, MEMORY, KEYBOARD, DISPLAY
+    }
+
+    private static final String DEFAULT_FILE = "chip8-trace.bin";
+    private static final int DEFAULT_RECORDS = 1 << 16;
+
+    private final Level level;
+    private final Set<Category> categories;
+    private final TraceBuffer buffer;
+
+    private Tracer(Level level, Set<Category> categories, TraceBuffer buffer) {
+        this.level = level;
+        this.categories = categories;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return a tracer that only reports errors, for all categories
+     */
+    public static Tracer errorsOnly() {
+        return new Tracer(Level.ERROR, EnumSet.allOf(Category.class), null);
+    }
+
+    public static Tracer fromSystemProperties() throws IOException {
+        Level level = Level.valueOf(System.getProperty("chip8.trace.level", Level.ERROR.name()).toUpperCase(Locale.ROOT));
+
+        Set<Category> categories = EnumSet.noneOf(Category.class);
+        String names = System.getProperty("chip8.trace.categories");
+        if (names == null || names.trim().isEmpty()) {
+            categories.addAll(EnumSet.allOf(Category.class));
+        } else {
+            for (String name : names.split(",")) {
+                categories.add(Category.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+
+        TraceBuffer buffer = null;
+        if (level == Level.TRACE && categories.contains(Category.CPU)) {
+            buffer = new TraceBuffer(Paths.get(System.getProperty("chip8.trace.file", DEFAULT_FILE)),
+                    Integer.getInteger("chip8.trace.records", DEFAULT_RECORDS));
+        }
+        return new Tracer(level, categories, buffer);
+    }
+
+    public boolean isEnabled(Level level, Category category) {
+        return level != Level.OFF && level.compareTo(this.level) <= 0 && this.categories.contains(category);
+    }
+
+    /**
+     * @return true if every executed instruction should be recorded
+     */
+    public boolean isInstructionTracing() {
+        return this.buffer != null;
+    }
+
+    public void log(Level level, Category category, String message) {
+        if (isEnabled(level, category)) {
+            System.err.println(String.format("[%s] %s: %s", level, category, message));
+        }
+    }
+
+    void instruction(short pc, short opCode, short i, byte delayTimer, byte soundTimer, byte[] v) {
+        this.buffer.put(pc, opCode, i, delayTimer, soundTimer, v);
+    }
+
+    /**
+     * Close this tracer when the JVM exits, so the instruction trace file is
+     * complete even if the interpreter never returns.
+     */
+    public void closeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "chip8-trace-shutdown"));
+    }
+
+    /**
+     * Flush the pending instruction records and close the trace file.
+     */
+    @Override
+    public void close() {
+        if (this.buffer != null) {
+            this.buffer.close();
+            if (this.buffer.getDropped() > 0) {
+                log(Level.ERROR, Category.CPU, this.buffer.getDropped() + " instruction records dropped");
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.brunoroberto.chip8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Translation tier of the interpreter.
+ * <p>
+ * Counts how often each even address is reached at the start of a dispatch and,
+ * once an address gets hot, translates the basic block starting there into an
+ * array of decoded instructions that {@link Chip8} runs in a tight loop, leaving
+ * HotSpot a small, stable loop to compile. Cold code, odd addresses and blocks
+ * that have been written over are left to the interpreter.
+ * </p>
+ * <p>
+ * Every byte covered by a translated block is marked as code in {@link Memory}.
+ * Writing to any of them bumps the memory code version, and all blocks are
+ * discarded on the next lookup. Every written slot is remembered as
+ * self-modifying and no block covering it is translated again, until the
+ * whole program is replaced by a restored state or a new load.
+ * </p>
+ * <p>
+ * A block that keeps running is then compiled to bytecode by
+ * {@link BlockCompiler}.
+ * </p>
+ */
+final class Translator {
+
+    private static final int HOT_THRESHOLD = 16;
+    private static final int COMPILE_THRESHOLD = 256;
+    private static final int COLD = -1;
+
+    private final Memory memory;
+
+    private final BasicBlock[] blocks;
+    private final int[] heat;
+    private final boolean[] selfModifying;
+
+    private int codeVersion;
+    private int resetEpoch;
+    private boolean compilationEnabled = true;
+
+    Translator(Memory memory) {
+        this.memory = memory;
+        this.blocks = new BasicBlock[Memory.SIZE / 2];
+        this.heat = new int[Memory.SIZE / 2];
+        this.selfModifying = new boolean[Memory.SIZE / 2];
+        this.codeVersion = memory.getCodeVersion();
+        this.resetEpoch = memory.getResetEpoch();
+    }
+
+    /**
+     * Find the translated block starting at the given address, translating it if
+     * the address just became hot.
+     *
+     * @return the block, or null if the interpreter should execute the address
+     */
+    BasicBlock lookup(int address) {
+        if (this.resetEpoch != this.memory.getResetEpoch()) {
+            reset();
+        } else if (this.codeVersion != this.memory.getCodeVersion()) {
+            flush();
+        }
+        if ((address & 1) != 0) {
+            return null;
+        }
+        int slot = address >> 1;
+        BasicBlock block = this.blocks[slot];
+        if (block != null) {
+            if (++block.executions == COMPILE_THRESHOLD && this.compilationEnabled) {
+                block.compiled = BlockCompiler.compile(block);
+            }
+            return block;
+        }
+        if (this.heat[slot] == COLD) {
+            return null;
+        }
+        if (++this.heat[slot] >= HOT_THRESHOLD) {
+            block = translate(address);
+            if (block == null) {
+                this.heat[slot] = COLD;
+            } else {
+                this.blocks[slot] = block;
+                this.memory.markCode(block.start, block.end);
+            }
+        }
+        return block;
+    }
+
+    private BasicBlock translate(int address) {
+        List<Instruction> instructions = new ArrayList<>();
+        int pc = address;
+        while (pc + 1 < Memory.SIZE && instructions.size() < BasicBlock.MAX_LENGTH) {
+            if (this.selfModifying[pc >> 1]) {
+                return null;
+            }
+            Instruction instruction = this.memory.getInstruction(pc);
+            instructions.add(instruction);
+            pc += 2;
+            if (BasicBlock.endsBlock(instruction)) {
+                break;
+            }
+        }
+        if (instructions.isEmpty()) {
+            return null;
+        }
+        return new BasicBlock(address, instructions.toArray(new Instruction[0]));
+    }
+
+    void setCompilationEnabled(boolean compilationEnabled) {
+        this.compilationEnabled = compilationEnabled;
+    }
+
+    /**
+     * Discard every translated block after code has been written over.
+     */
+    void flush() {
+        this.memory.addCodeWrites(this.selfModifying);
+        Arrays.fill(this.blocks, null);
+        Arrays.fill(this.heat, 0);
+        this.memory.clearCodeMarks();
+        this.codeVersion = this.memory.getCodeVersion();
+    }
+
+    /**
+     * Discard every translated block, heat count and self-modifying slot after
+     * the whole program has been replaced.
+     */
+    private void reset() {
+        Arrays.fill(this.selfModifying, false);
+        Arrays.fill(this.blocks, null);
+        Arrays.fill(this.heat, 0);
+        this.codeVersion = this.memory.getCodeVersion();
+        this.resetEpoch = this.memory.getResetEpoch();
+    }
+}
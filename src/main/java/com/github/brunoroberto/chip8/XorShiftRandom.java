@@ -0,0 +1,76 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Random number generator for CXKK, one per {@link Chip8}.
+ * <p>
+ * A xorshift64* generator: not synchronized and without any shared state, so
+ * machines running in parallel never contend, and a machine created with the
+ * same seed and fed the same input always produces the same run. The whole
+ * generator state is a single long that can be read and restored, and is part
+ * of a {@link SaveState}.
+ * </p>
+ */
+public final class XorShiftRandom {
+
+    private final long seed;
+    private long state;
+
+    /**
+     * Seeded from the clock, for runs that do not need to be reproduced.
+     */
+    public XorShiftRandom() {
+        this(System.nanoTime());
+    }
+
+    public XorShiftRandom(long seed) {
+        this.seed = seed;
+        this.state = mix(seed);
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public long getState() {
+        return this.state;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the state is zero, which xorshift
+     *                                  never leaves
+     */
+    public void setState(long state) {
+        if (state == 0) {
+            throw new IllegalArgumentException("xorshift state cannot be zero");
+        }
+        this.state = state;
+    }
+
+    public long nextLong() {
+        long x = this.state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        this.state = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * The high byte of the next value, the best distributed bits of xorshift*.
+     */
+    public byte nextByte() {
+        return (byte) (nextLong() >>> 56);
+    }
+
+    /**
+     * SplitMix64 finalizer, so that close seeds give unrelated states and no
+     * seed gives the zero state.
+     */
+    private static long mix(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return z != 0 ? z : 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameExchangeTest {
+
+    @Test
+    void takesTheLatestPublishedFrame() {
+        FrameExchange exchange = new FrameExchange();
+        assertFalse(exchange.hasFresh());
+        assertEquals(0, exchange.take()[0], "blank before the first frame");
+
+        exchange.publish(frame(1));
+        exchange.publish(frame(2));
+        assertTrue(exchange.hasFresh());
+
+        long[] rows = exchange.take();
+        assertEquals(2, rows[0]);
+        assertFalse(exchange.hasFresh());
+        assertSame(rows, exchange.take(), "same front buffer until a new frame");
+    }
+
+    @Test
+    void publishingDoesNotChangeTheTakenFrame() {
+        FrameExchange exchange = new FrameExchange();
+        exchange.publish(frame(1));
+        long[] rows = exchange.take();
+
+        for (int i = 2; i < 10; i++) {
+            exchange.publish(frame(i));
+        }
+
+        assertEquals(1, rows[ScreenMemory.ROWS - 1]);
+        assertEquals(9, exchange.take()[ScreenMemory.ROWS - 1]);
+    }
+
+    @Test
+    void neverTearsAFrameAcrossThreads() throws Exception {
+        int frames = 200_000;
+        FrameExchange exchange = new FrameExchange();
+        ScreenMemory screen = new ScreenMemory();
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= frames; i++) {
+                for (int row = 0; row < ScreenMemory.ROWS; row++) {
+                    screen.setRow(row, i);
+                }
+                exchange.publish(screen);
+            }
+        });
+        producer.start();
+
+        long previous = 0;
+        while (previous < frames) {
+            long[] rows = exchange.take();
+            for (int row = 1; row < ScreenMemory.ROWS; row++) {
+                assertEquals(rows[0], rows[row], "torn frame");
+            }
+            assertTrue(rows[0] >= previous, "frames go backwards");
+            previous = rows[0];
+        }
+        producer.join();
+    }
+
+    private static ScreenMemory frame(long value) {
+        ScreenMemory screen = new ScreenMemory();
+        for (int row = 0; row < ScreenMemory.ROWS; row++) {
+            screen.setRow(row, value);
+        }
+        return screen;
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Golden-frame regression suite over the ROMs and input scripts in the
+ * {@code golden} test resources, read from the classpath. After an intended
+ * change of the output, rewrite the golden file in the source tree with
+ * {@code mvn test -Dchip8.golden.update=src/test/resources/golden}.
+ */
+class GoldenFramesTest {
+
+    private static final Path GOLDEN = resource("/golden");
+    private static final long[] CHECKPOINTS = {1, 30, 60, 300};
+
+    @Test
+    void framesMatchGoldenFile() throws Exception {
+        List<Path> roms = BatchRunner.listRoms(GOLDEN.resolve("roms"));
+        List<InputScript> scripts = Arrays.asList(InputScript.empty(),
+                InputScript.read(GOLDEN.resolve("scripts").resolve("keys.txt")));
+        List<BatchRunner.Result> results = GoldenFrames.run(roms, scripts, CHECKPOINTS,
+                Scheduler.DEFAULT_INSTRUCTIONS_PER_SECOND, BatchRunner.DEFAULT_SEED);
+
+        String update = System.getProperty("chip8.golden.update");
+        if (update != null) {
+            // the resources on the classpath are copies, write to the given source directory
+            GoldenFrames.write(Paths.get(update).resolve("golden.txt"), results, CHECKPOINTS);
+            return;
+        }
+        assertEquals(Collections.emptyList(),
+                GoldenFrames.read(GOLDEN.resolve("golden.txt")).compare(results, CHECKPOINTS));
+    }
+
+    @Test
+    void namesWithSpacesRoundTrip(@TempDir Path directory) throws Exception {
+        long[] checkpoints = {10, 20};
+        List<BatchRunner.Result> results = Collections.singletonList(
+                result("Space Invaders [David Winter].ch8", "two keys.txt", 0x0123456789ABCDEFL, -1L));
+        Path file = directory.resolve("golden.txt");
+
+        GoldenFrames.write(file, results, checkpoints);
+
+        assertEquals(Collections.emptyList(), GoldenFrames.read(file).compare(results, checkpoints));
+    }
+
+    @Test
+    void reportsMismatchesMissingHashesAndFaults(@TempDir Path directory) throws Exception {
+        long[] checkpoints = {10, 20};
+        Path file = directory.resolve("golden.txt");
+        Files.write(file, Arrays.asList(
+                "# comment",
+                "a.ch8\t-\t10\t0000000000000001",
+                "a.ch8\t-\t20\t0000000000000002",
+                "b.ch8\t-\t10\t0000000000000003"), StandardCharsets.UTF_8);
+        BatchRunner.Result matching = result("a.ch8", "-", 1, 3);
+        BatchRunner.Result faulted = new BatchRunner.Result("b.ch8", "-", 15, 150, 0, new long[]{3}, 0,
+                "STACK_UNDERFLOW at 0x200");
+
+        List<String> failures = GoldenFrames.read(file).compare(Arrays.asList(matching, faulted), checkpoints);
+
+        assertEquals(2, failures.size());
+        assertTrue(failures.get(0).startsWith("a.ch8\t-\t20: expected 0000000000000002, got 0000000000000003"));
+        assertTrue(failures.get(1).contains("not reached, fault=STACK_UNDERFLOW"));
+    }
+
+    @Test
+    void rejectsLinesWithoutFourTabSeparatedFields(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("golden.txt");
+        Files.write(file, Collections.singletonList("a.ch8 - 10 0000000000000001"), StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> GoldenFrames.read(file));
+    }
+
+    @Test
+    void checkpointsMustIncrease() {
+        assertEquals(3, GoldenFrames.parseCheckpoints("60, 600,3600").length);
+        assertThrows(IllegalArgumentException.class, () -> GoldenFrames.parseCheckpoints("600,60"));
+        assertThrows(IllegalArgumentException.class, () -> GoldenFrames.parseCheckpoints("0"));
+    }
+
+    private static BatchRunner.Result result(String rom, String script, long first, long second) {
+        return new BatchRunner.Result(rom, script, 20, 200, second, new long[]{first, second}, 0, null);
+    }
+
+    private static Path resource(String name) {
+        try {
+            return Paths.get(GoldenFramesTest.class.getResource(name).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
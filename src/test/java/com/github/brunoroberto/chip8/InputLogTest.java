@@ -0,0 +1,155 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputLogTest {
+
+    private static final long SEED = 42;
+    private static final int IPS = 600;
+
+    // waits for a key, then draws its digit at a random position
+    private static final byte[] ROM = Roms.rom(
+            0xF00A, // 200 LD V0, K
+            0xF029, // 202 LD F, V0
+            0xC1FF, // 204 RND V1, FF
+            0xD115, // 206 DRW V1, V1, 5
+            0x1200  // 208 JP 200
+    );
+
+    @Test
+    void varLongsRoundTrip() throws IOException {
+        long[] values = {0, 1, 0x7F, 0x80, 0x3FFF, 0x4000, 1L << 35, Long.MAX_VALUE, -1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long value : values) {
+            InputLog.writeVarLong(out, value);
+        }
+        assertEquals(1 + 1 + 1 + 2 + 2 + 3 + 6 + 9 + 10, bytes.size());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : values) {
+            assertEquals(value, InputLog.readVarLong(in));
+        }
+    }
+
+    @Test
+    void rejectsOverlongVarLong() {
+        byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0x80);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        assertThrows(IOException.class, () -> InputLog.readVarLong(in));
+    }
+
+    @Test
+    void replayReachesTheRecordedState(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("session.c8in");
+        Chip8 recorded = record(file, 5, 0xA, 8, 0x3, 17, 0xF);
+
+        InputLog log = InputLog.read(file);
+        assertEquals(SEED, log.getSeed());
+        assertEquals(IPS, log.getInstructionsPerSecond());
+        assertEquals(6, log.getEvents());
+        assertEquals(recorded.getFrames(), log.getFrames());
+
+        Chip8 replayed = log.replay(ROM);
+        assertTrue(log.matches(replayed));
+        assertEquals(recorded.getCycles(), replayed.getCycles());
+    }
+
+    @Test
+    void replayRejectsAnotherRom(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("session.c8in");
+        record(file, 1, 0x1);
+
+        InputLog log = InputLog.read(file);
+        assertThrows(IllegalArgumentException.class, () -> log.replay(Roms.rom(0x1200)));
+    }
+
+    @Test
+    void truncatedLogKeepsCompleteEvents(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("session.c8in");
+        record(file, 5, 0xA, 8, 0x3, 17, 0xF);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = directory.resolve("truncated.c8in");
+        // drop the end record (0xFF, frames under 128, 8 byte hash) and the stamp of the last event
+        int end = bytes.length - 1 - 1 - 8;
+        assertEquals((byte) InputLog.END, bytes[end]);
+        Files.write(truncated, Arrays.copyOf(bytes, end - 1));
+
+        InputLog log = InputLog.read(truncated);
+
+        assertEquals(5, log.getEvents());
+        assertEquals(-1, log.getFrames());
+        Chip8 replayed = log.replay(ROM);
+        assertFalse(log.matches(replayed), "no end record to match");
+        assertTrue(replayed.getFrames() > 0);
+    }
+
+    @Test
+    void logCutInsideTheEndRecordHasNoEndRecord(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("session.c8in");
+        record(file, 5, 0xA, 8, 0x3);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = directory.resolve("truncated.c8in");
+        // keep the end marker and the frames, drop part of the hash
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+
+        InputLog log = InputLog.read(truncated);
+
+        assertEquals(4, log.getEvents());
+        assertEquals(-1, log.getFrames());
+        assertFalse(log.matches(log.replay(ROM)), "no end record to match");
+    }
+
+    @Test
+    void rejectsOtherFiles(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("state.c8s");
+        Files.write(file, new byte[]{'C', '8', 'S', 'S', 0, 2, 0, 0});
+
+        assertThrows(IOException.class, () -> InputLog.read(file));
+    }
+
+    /**
+     * Run the ROM, pressing each key for a frame at the given frame.
+     *
+     * @param keys frame and key pairs
+     */
+    private static Chip8 record(Path file, int... keys) throws Exception {
+        RecordingKeyboard keyboard = new RecordingKeyboard(Tracer.errorsOnly(), file, SEED, IPS, ROM);
+        Chip8 chip8 = new Chip8(keyboard, new NullDisplay(), new ScreenMemory(), Tracer.errorsOnly(),
+                new XorShiftRandom(SEED));
+        chip8.setTranslationEnabled(true);
+        chip8.setIdleLoopSkipping(true);
+        chip8.setBlockingKeyWait(false);
+        chip8.addFrameListener(keyboard);
+        chip8.load(ROM);
+
+        Scheduler scheduler = Scheduler.unthrottled(IPS);
+        for (int i = 0; i < keys.length; i += 2) {
+            scheduler.run(chip8, keys[i] - chip8.getFrames());
+            keyboard.press(keys[i + 1]);
+            scheduler.run(chip8, 1);
+            keyboard.release(keys[i + 1]);
+        }
+        keyboard.endSession();
+        scheduler.run(chip8, 10);
+        keyboard.finish(chip8);
+        return chip8;
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputScriptTest {
+
+    @Test
+    void appliesEventsUpToTheFrame() {
+        InputScript script = InputScript.parse("keys.txt", Arrays.asList(
+                "# fire, then move right",
+                "",
+                "0 5 down",
+                "  10\tA down  ",
+                "10 5 up",
+                "20 a up"));
+        Keyboard keyboard = new Keyboard();
+        InputScript.Player player = script.player(keyboard);
+
+        player.applyUntil(0);
+        assertEquals(1 << 5, keyboard.getPressedMask());
+        player.applyUntil(9);
+        assertEquals(1 << 5, keyboard.getPressedMask());
+        player.applyUntil(10);
+        assertEquals(1 << 0xA, keyboard.getPressedMask());
+        player.applyUntil(100);
+        assertEquals(0, keyboard.getPressedMask());
+        assertEquals("keys.txt", script.getName());
+    }
+
+    @Test
+    void playerFollowsTheInterpreterFrames() {
+        InputScript script = InputScript.parse("s", Collections.singletonList("3 F down"));
+        Keyboard keyboard = new Keyboard();
+        Chip8 chip8 = new Chip8(keyboard, new NullDisplay(), new ScreenMemory());
+        chip8.addFrameListener(script.player(keyboard));
+
+        for (int frame = 0; frame < 2; frame++) {
+            chip8.runFrame(1);
+        }
+        assertEquals(0, keyboard.getPressedMask());
+        chip8.runFrame(1);
+        assertTrue(keyboard.isKeyPressed(0xF));
+    }
+
+    @Test
+    void emptyScriptHasNoEvents() {
+        Keyboard keyboard = new Keyboard();
+        InputScript.empty().player(keyboard).applyUntil(Long.MAX_VALUE);
+
+        assertEquals(0, keyboard.getPressedMask());
+        assertEquals("-", InputScript.empty().getName());
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        assertRejected("1 2");
+        assertRejected("1 2 pressed");
+        assertRejected("1 10 down");
+        assertRejected("1 G down");
+        assertRejected("x 1 down");
+        assertRejected("-1 1 down");
+    }
+
+    @Test
+    void rejectsFramesGoingBackwards() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> InputScript.parse("s", Arrays.asList("5 1 down", "4 1 up")));
+        assertTrue(e.getMessage().startsWith("s:2:"), e.getMessage());
+    }
+
+    private static void assertRejected(String line) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> InputScript.parse("s", Collections.singletonList(line)), line);
+        assertTrue(e.getMessage().startsWith("s:1:"), e.getMessage());
+    }
+}
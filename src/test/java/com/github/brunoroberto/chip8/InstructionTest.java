@@ -0,0 +1,73 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InstructionTest {
+
+    @Test
+    void decodesEveryOperationCodeWithItsOperands() {
+        for (int code = 0; code <= 0xFFFF; code++) {
+            short opCode = (short) code;
+            Instruction instruction = Instruction.decode(opCode);
+
+            assertEquals(opCode, instruction.opCode);
+            assertSame(Operation.forOpCode(code), instruction.operation);
+            assertEquals((code >>> 8) & 0xF, instruction.x);
+            assertEquals((code >>> 4) & 0xF, instruction.y);
+            assertEquals(code & 0xF, instruction.n);
+            assertEquals((byte) code, instruction.kk);
+            assertEquals(code & 0xFFF, instruction.nnn);
+            assertSame(instruction, Instruction.decode(opCode), "decoded once");
+        }
+    }
+
+    @Test
+    void countsOperationCodesPerOperation() {
+        Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+        for (int code = 0; code <= 0xFFFF; code++) {
+            counts.merge(Instruction.decode((short) code).operation, 1, Integer::sum);
+        }
+
+        assertEquals(4094, counts.get(Operation.SYS));
+        assertEquals(1, counts.get(Operation.CLS));
+        assertEquals(1, counts.get(Operation.RET));
+        assertEquals(4096, counts.get(Operation.JP));
+        assertEquals(4096, counts.get(Operation.DRW));
+        assertEquals(256, counts.get(Operation.SE_VX_VY));
+        assertEquals(256, counts.get(Operation.SHL));
+        assertEquals(256, counts.get(Operation.SNE_VX_VY));
+        assertEquals(16, counts.get(Operation.SKP));
+        assertEquals(16, counts.get(Operation.LD_VX_I));
+        assertEquals(65536 - 48048, counts.get(Operation.INVALID));
+    }
+
+    @Test
+    void decodesOperationsByPattern() {
+        assertSame(Operation.CLS, Instruction.decode((short) 0x00E0).operation);
+        assertSame(Operation.RET, Instruction.decode((short) 0x00EE).operation);
+        assertSame(Operation.SYS, Instruction.decode((short) 0x0123).operation);
+        assertSame(Operation.SE_VX_VY, Instruction.decode((short) 0x5AB0).operation);
+        assertSame(Operation.INVALID, Instruction.decode((short) 0x5AB1).operation);
+        assertSame(Operation.SHR, Instruction.decode((short) 0x8AB6).operation);
+        assertSame(Operation.INVALID, Instruction.decode((short) 0x8AB8).operation);
+        assertSame(Operation.INVALID, Instruction.decode((short) 0x9AB1).operation);
+        assertSame(Operation.SKNP, Instruction.decode((short) 0xE3A1).operation);
+        assertSame(Operation.INVALID, Instruction.decode((short) 0xE3A0).operation);
+        assertSame(Operation.LD_VX_K, Instruction.decode((short) 0xF30A).operation);
+        assertSame(Operation.LD_B, Instruction.decode((short) 0xF333).operation);
+        assertSame(Operation.INVALID, Instruction.decode((short) 0xF3FF).operation);
+    }
+
+    @Test
+    void disassembles() {
+        assertEquals("LD V1, 0x0A", Instruction.decode((short) 0x610A).disassemble());
+        assertEquals("DRW VA, VB, 5", Instruction.decode((short) 0xDAB5).disassemble());
+        assertEquals("DW 0xFFFF", Instruction.decode((short) 0xFFFF).disassemble());
+    }
+}
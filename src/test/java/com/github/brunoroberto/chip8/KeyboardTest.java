@@ -0,0 +1,133 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyboardTest {
+
+    @Test
+    void tracksPressedKeys() {
+        Keyboard keyboard = new Keyboard();
+        keyboard.press(0x3);
+        keyboard.press(0xF);
+        keyboard.release(0x3);
+
+        assertEquals(1 << 0xF, keyboard.getPressedMask());
+        assertTrue(keyboard.isKeyPressed(0xF));
+        assertFalse(keyboard.isKeyPressed(0x3));
+        assertFalse(keyboard.isKeyPressed(0x1F), "not a key");
+    }
+
+    @Test
+    void rejectsKeysOutsideTheKeypad() {
+        Keyboard keyboard = new Keyboard();
+
+        assertThrows(IllegalArgumentException.class, () -> keyboard.press(-1));
+        assertThrows(IllegalArgumentException.class, () -> keyboard.press(16));
+        assertThrows(IllegalArgumentException.class, () -> keyboard.release(31));
+        assertEquals(0, keyboard.getPressedMask());
+    }
+
+    @Test
+    void waitReturnsAKeyStillDown() throws Exception {
+        Keyboard keyboard = new Keyboard();
+        keyboard.press(0x7);
+        keyboard.press(0x3);
+        keyboard.release(0x3);
+
+        assertEquals(0x7, keyboard.waitForKeyPressed());
+    }
+
+    @Test
+    void waitParksUntilAKeyIsPressed() throws Exception {
+        Keyboard keyboard = new Keyboard();
+        CompletableFuture<Byte> key = waitInBackground(keyboard, false);
+
+        assertNotDone(key);
+        keyboard.press(0xC);
+
+        assertEquals(0xC, (byte) key.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitCatchesAQuickTap() throws Exception {
+        Keyboard keyboard = new Keyboard();
+        CompletableFuture<Byte> pressed = waitInBackground(keyboard, false);
+        assertNotDone(pressed);
+
+        keyboard.press(0x5);
+        keyboard.release(0x5);
+
+        assertEquals(0x5, (byte) pressed.get(5, TimeUnit.SECONDS));
+        CompletableFuture<Byte> released = waitInBackground(keyboard, true);
+        assertNotDone(released);
+
+        keyboard.press(0x9);
+        keyboard.release(0x9);
+
+        assertEquals(0x9, (byte) released.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitForReleaseIgnoresOtherKeys() throws Exception {
+        Keyboard keyboard = new Keyboard();
+        keyboard.press(0x7);
+        keyboard.press(0x3);
+        keyboard.release(0x3);
+        CompletableFuture<Byte> key = waitInBackground(keyboard, true);
+
+        assertNotDone(key);
+        keyboard.press(0x1);
+        keyboard.release(0x1);
+        assertNotDone(key);
+        keyboard.release(0x7);
+
+        assertEquals(0x7, (byte) key.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interruptEndsTheWait() throws Exception {
+        Keyboard keyboard = new Keyboard();
+        CompletableFuture<Byte> key = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                key.complete(keyboard.waitForKeyPressed());
+            } catch (InterruptedException e) {
+                key.completeExceptionally(e);
+            }
+        });
+        thread.start();
+
+        thread.interrupt();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> key.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InterruptedException);
+    }
+
+    private static CompletableFuture<Byte> waitInBackground(Keyboard keyboard, boolean release) {
+        CompletableFuture<Byte> key = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                key.complete(release ? keyboard.waitForKeyReleased() : keyboard.waitForKeyPressed());
+            } catch (Throwable e) {
+                key.completeExceptionally(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return key;
+    }
+
+    private static void assertNotDone(CompletableFuture<Byte> key) throws Exception {
+        assertThrows(TimeoutException.class, () -> key.get(100, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MemoryTest {
+
+    @Test
+    void decodesOnceUntilWritten() {
+        Memory memory = new Memory();
+        memory.writeWord(0x200, (byte) 0x61);
+        memory.writeWord(0x201, (byte) 0x23);
+
+        Instruction first = memory.getInstruction(0x200);
+        assertSame(Operation.LD_VX_BYTE, first.getOperation());
+        assertSame(first, memory.getInstruction(0x200));
+
+        memory.writeWord(0x201, (byte) 0x45);
+        assertEquals((short) 0x6145, memory.getInstruction(0x200).getOpCode());
+        memory.writeWord(0x200, (byte) 0x71);
+        assertSame(Operation.ADD_VX_BYTE, memory.getInstruction(0x200).getOperation());
+    }
+
+    @Test
+    void decodesOddAddressesAcrossSlots() {
+        Memory memory = new Memory();
+        memory.writeWord(0x201, (byte) 0x12);
+        memory.writeWord(0x202, (byte) 0x34);
+
+        assertEquals((short) 0x1234, memory.getInstruction(0x201).getOpCode());
+        memory.writeWord(0x202, (byte) 0x56);
+        assertEquals((short) 0x1256, memory.getInstruction(0x201).getOpCode());
+    }
+
+    @Test
+    void restoreDiscardsDecodedInstructions() {
+        Memory memory = new Memory();
+        memory.writeWord(0x200, (byte) 0x00);
+        memory.writeWord(0x201, (byte) 0xE0);
+        assertSame(Operation.CLS, memory.getInstruction(0x200).getOperation());
+
+        byte[] content = new byte[Memory.SIZE];
+        content[0x200] = (byte) 0x00;
+        content[0x201] = (byte) 0xEE;
+        memory.restore(ByteBuffer.wrap(content));
+
+        assertSame(Operation.RET, memory.getInstruction(0x200).getOperation());
+    }
+
+    @Test
+    void countsOnlyWritesOverCode() {
+        Memory memory = new Memory();
+        memory.markCode(0x200, 0x204);
+        int version = memory.getCodeVersion();
+
+        memory.writeWord(0x300, (byte) 1);
+        assertEquals(version, memory.getCodeVersion());
+        memory.writeWord(0x202, (byte) 1);
+        assertEquals(version + 1, memory.getCodeVersion());
+        memory.writeWord(0x203, (byte) 1);
+        assertEquals(version + 1, memory.getCodeVersion(), "slot already unmarked");
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void countsInstructionsFramesAndScreenUpdates() {
+        Chip8 chip8 = Roms.headless(
+                0x6005, // 200 LD V0, 5
+                0xD005, // 202 DRW V0, V0, 5
+                0x1204  // 204 JP 204
+        );
+        Metrics metrics = new Metrics();
+        chip8.setMetrics(metrics);
+
+        chip8.runFrame(10);
+        chip8.runFrame(10);
+
+        assertEquals(20, metrics.getInstructions());
+        assertEquals(2, metrics.getFrames());
+        assertEquals(1, metrics.getSpriteDraws());
+        assertEquals(18, metrics.getInstructionFamilyCounts()[0x1]);
+        assertEquals(1, metrics.getScreenUpdates(), "presented once, the frame with the sprite");
+        assertEquals(0, metrics.getPaints(), "nothing painted without a screen");
+    }
+
+    @Test
+    void rendersTimeScreenPaints() {
+        Metrics metrics = new Metrics();
+        Screen screen = new Screen();
+        screen.setMetrics(metrics);
+        screen.setSize(ScreenMemory.COLUMNS * 4, ScreenMemory.ROWS * 4);
+        ScreenMemory screenMemory = new ScreenMemory();
+        screenMemory.drawSprite(0, 0, 0xFF);
+        screen.draw(screenMemory);
+
+        BufferedImage image = new BufferedImage(screen.getWidth(), screen.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        screen.paintComponent(graphics);
+        screen.paintComponent(graphics);
+        graphics.dispose();
+
+        assertEquals(2, metrics.getPaints());
+        assertEquals(2, sum(metrics.getRenderTimeHistogram()));
+        assertTrue(metrics.getRenderTimeMaxMicros() > 0);
+        assertEquals(0xFFFFFF, image.getRGB(0, 0) & 0xFFFFFF, "sprite painted");
+    }
+
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long count : histogram) {
+            sum += count;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RewindBufferTest {
+
+    private static final int MEMORY_OFFSET = 79;
+
+    // moves a random sprite and stores registers to memory every frame
+    private static final int[] PROGRAM = {
+            0xC10F, // 200 RND V1, 0F
+            0xF129, // 202 LD F, V1
+            0x7003, // 204 ADD V0, 3
+            0xD015, // 206 DRW V0, V1, 5
+            0xA400, // 208 LD I, 400
+            0xF355, // 20A LD [I], V3
+            0x7301, // 20C ADD V3, 1
+            0x1200, // 20E JP 200
+    };
+
+    @Test
+    void rewindsToEveryCapturedFrame() {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        RewindBuffer buffer = new RewindBuffer(1 << 20, 100, 7);
+        List<byte[]> states = run(chip8, buffer, 30);
+
+        for (int frames = 0; frames < 30; frames += 4) {
+            Chip8 restored = Roms.headless();
+            RewindBuffer copy = new RewindBuffer(1 << 20, 100, 7);
+            for (byte[] state : states) {
+                restored.restoreState(ByteBuffer.wrap(state));
+                copy.capture(restored);
+            }
+
+            assertEquals(frames, copy.rewind(restored, frames));
+            assertArrayEquals(states.get(states.size() - 1 - frames), SaveState.capture(restored).array(),
+                    "rewound " + frames + " frames");
+            assertEquals(30 - frames, copy.getFrames());
+        }
+    }
+
+    @Test
+    void capturesAfterRewindContinueTheHistory() {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        RewindBuffer buffer = new RewindBuffer(1 << 20, 100, 5);
+        List<byte[]> states = run(chip8, buffer, 12);
+
+        buffer.rewind(chip8, 8);
+        List<byte[]> replayed = run(chip8, buffer, 8);
+
+        assertEquals(12, buffer.getFrames());
+        assertArrayEquals(states.get(11), replayed.get(7), "deterministic after the rewind");
+        buffer.rewind(chip8, 2);
+        assertArrayEquals(states.get(9), SaveState.capture(chip8).array());
+    }
+
+    @Test
+    void encodesStatesWithoutZeroRuns() {
+        Chip8 chip8 = Roms.headless();
+        byte[] noisy = SaveState.capture(chip8).array();
+        Random random = new Random(1);
+        for (int i = MEMORY_OFFSET; i < MEMORY_OFFSET + Memory.SIZE; i++) {
+            noisy[i] = (byte) (random.nextInt(255) + 1);
+        }
+        chip8.restoreState(ByteBuffer.wrap(noisy));
+        RewindBuffer buffer = new RewindBuffer(RewindBuffer.minimumCapacity(), 10, 10);
+
+        buffer.capture(chip8);
+        chip8.restoreState(ByteBuffer.wrap(SaveState.capture(Roms.headless()).array()));
+        buffer.capture(chip8);
+        buffer.rewind(chip8, 1);
+
+        assertArrayEquals(noisy, SaveState.capture(chip8).array());
+    }
+
+    @Test
+    void evictsOldestFramesAtTheFrameLimit() {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        RewindBuffer buffer = new RewindBuffer(1 << 20, 10, 4);
+        List<byte[]> states = run(chip8, buffer, 25);
+
+        assertTrue(buffer.getFrames() <= 10);
+        int kept = buffer.getFrames();
+        assertEquals(kept - 1, buffer.rewind(chip8, 100));
+        assertArrayEquals(states.get(25 - kept), SaveState.capture(chip8).array(), "oldest is a keyframe");
+    }
+
+    @Test
+    void evictsOldestFramesWhenTheArenaIsFull() {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        RewindBuffer buffer = new RewindBuffer(RewindBuffer.minimumCapacity(), 1000, 3);
+        List<byte[]> states = run(chip8, buffer, 200);
+
+        int kept = buffer.getFrames();
+        assertTrue(kept > 1 && kept < 200, "kept " + kept);
+        buffer.rewind(chip8, 1);
+        assertArrayEquals(states.get(198), SaveState.capture(chip8).array());
+        assertEquals(kept - 2, buffer.rewind(chip8, 1000));
+        assertArrayEquals(states.get(200 - kept), SaveState.capture(chip8).array(), "oldest is a keyframe");
+    }
+
+    @Test
+    void rejectsTooSmallArena() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RewindBuffer(RewindBuffer.minimumCapacity() - 1, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new RewindBuffer(1 << 20, 0, 10));
+    }
+
+    private static List<byte[]> run(Chip8 chip8, RewindBuffer buffer, int frames) {
+        List<byte[]> states = new ArrayList<>();
+        for (int frame = 0; frame < frames; frame++) {
+            chip8.runFrame(10);
+            buffer.capture(chip8);
+            states.add(SaveState.capture(chip8).array());
+        }
+        return states;
+    }
+}
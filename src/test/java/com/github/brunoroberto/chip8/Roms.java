@@ -0,0 +1,33 @@
+package com.github.brunoroberto.chip8;
+
+/**
+ * Builds small programs for the tests.
+ */
+final class Roms {
+
+    private Roms() {
+    }
+
+    /**
+     * @param program one 16 bit operation code per instruction
+     */
+    static byte[] rom(int... program) {
+        byte[] rom = new byte[program.length * 2];
+        for (int i = 0; i < program.length; i++) {
+            rom[i * 2] = (byte) (program[i] >>> 8);
+            rom[i * 2 + 1] = (byte) program[i];
+        }
+        return rom;
+    }
+
+    /**
+     * @return a headless interpreter with a seeded generator and the program
+     * loaded
+     */
+    static Chip8 headless(int... program) {
+        Chip8 chip8 = new Chip8(new Keyboard(), new NullDisplay(), new ScreenMemory(), Tracer.errorsOnly(),
+                new XorShiftRandom(1));
+        chip8.load(rom(program));
+        return chip8;
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SaveStateTest {
+
+    // calls a subroutine that draws a random sprite and counts
+    private static final int[] PROGRAM = {
+            0x2206, // 200 CALL 206
+            0xF015, // 202 LD DT, V0
+            0x1200, // 204 JP 200
+            0xC10F, // 206 RND V1, 0F
+            0xF129, // 208 LD F, V1
+            0x7203, // 20A ADD V2, 3
+            0xD235, // 20C DRW V2, V3, 5
+            0x00EE, // 20E RET
+    };
+
+    @Test
+    void roundTripsThroughAFile(@TempDir Path directory) throws Exception {
+        Chip8 original = Roms.headless(PROGRAM);
+        for (int frame = 0; frame < 20; frame++) {
+            original.runFrame(7);
+        }
+        ByteBuffer state = SaveState.capture(original);
+        assertEquals(SaveState.SIZE, state.remaining());
+        Path file = directory.resolve("state.c8s");
+        SaveState.write(file, state.duplicate());
+
+        Chip8 restored = Roms.headless();
+        restored.restoreState(SaveState.read(file));
+
+        assertArrayEquals(state.array(), SaveState.capture(restored).array());
+        assertEquals(original.getCycles(), restored.getCycles());
+        assertEquals(original.getFrames(), restored.getFrames());
+        for (int frame = 0; frame < 20; frame++) {
+            original.runFrame(7);
+            restored.runFrame(7);
+        }
+        assertArrayEquals(SaveState.capture(original).array(), SaveState.capture(restored).array(),
+                "same random numbers after the restore");
+    }
+
+    @Test
+    void rejectsTruncatedState() {
+        ByteBuffer state = SaveState.capture(Roms.headless(PROGRAM));
+        state.limit(SaveState.SIZE - 1);
+
+        assertRejected(state);
+    }
+
+    @Test
+    void rejectsWrongMagic() {
+        ByteBuffer state = SaveState.capture(Roms.headless(PROGRAM));
+        state.putInt(0, 0x12345678);
+
+        assertRejected(state);
+    }
+
+    @Test
+    void rejectsOtherVersions() {
+        ByteBuffer state = SaveState.capture(Roms.headless(PROGRAM));
+        state.putShort(4, (short) 1);
+
+        assertRejected(state);
+    }
+
+    @Test
+    void rejectsInvalidStackPointer() {
+        ByteBuffer state = SaveState.capture(Roms.headless(PROGRAM));
+        state.put(46, (byte) 17);
+
+        assertRejected(state);
+    }
+
+    @Test
+    void rejectsZeroRandomState() {
+        ByteBuffer state = SaveState.capture(Roms.headless(PROGRAM));
+        state.putLong(SaveState.SIZE - 8, 0);
+
+        assertRejected(state);
+    }
+
+    @Test
+    void restartsAnInterpreterHaltedByAFault() {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        ByteBuffer state = SaveState.capture(chip8);
+        chip8.runFrame(1);
+        Chip8 faulty = Roms.headless(0x00EE); // RET with an empty stack
+        faulty.runFrame(1);
+        assertTrue(faulty.isHalted());
+        assertFalse(faulty.isRunning());
+
+        faulty.restoreState(state);
+
+        assertFalse(faulty.isHalted());
+        assertTrue(faulty.isRunning());
+        faulty.runFrame(10);
+        assertFalse(faulty.isHalted());
+    }
+
+    @Test
+    void stoppedInterpreterStaysStopped() {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        ByteBuffer state = SaveState.capture(chip8);
+        chip8.stop();
+
+        chip8.restoreState(state);
+
+        assertFalse(chip8.isRunning());
+    }
+
+    private static void assertRejected(ByteBuffer state) {
+        Chip8 chip8 = Roms.headless(PROGRAM);
+        chip8.runFrame(5);
+        byte[] before = SaveState.capture(chip8).array();
+
+        assertThrows(IllegalArgumentException.class, () -> chip8.restoreState(state));
+        assertArrayEquals(before, SaveState.capture(chip8).array(), "left unchanged");
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenMemoryTest {
+
+    @Test
+    void drawsSpriteMostSignificantBitLeftmost() {
+        ScreenMemory screen = new ScreenMemory();
+
+        assertFalse(screen.drawSprite(4, 3, 0b1000_0001));
+
+        assertEquals((Long.MIN_VALUE >>> 4) | (Long.MIN_VALUE >>> 11), screen.getRow(3));
+        assertEquals(2, screen.getActivePixels().size());
+    }
+
+    @Test
+    void wrapsAtTheRightEdge() {
+        ScreenMemory screen = new ScreenMemory();
+
+        screen.drawSprite(60, 0, 0xFF);
+
+        assertEquals(0xF00000000000000FL, screen.getRow(0));
+    }
+
+    @Test
+    void wrapsCoordinatesOutsideTheScreen() {
+        ScreenMemory screen = new ScreenMemory();
+
+        screen.drawSprite(64 + 2, 32 + 5, 0x80);
+        screen.drawSprite(-1, -1, 0x80);
+
+        assertEquals(Long.MIN_VALUE >>> 2, screen.getRow(5));
+        assertEquals(1L, screen.getRow(31));
+    }
+
+    @Test
+    void reportsCollisionAndErases() {
+        ScreenMemory screen = new ScreenMemory();
+        screen.drawSprite(10, 7, 0b1100_0000);
+
+        assertFalse(screen.drawSprite(12, 7, 0b1100_0000), "touching, not overlapping");
+        assertTrue(screen.drawSprite(11, 7, 0b1000_0000));
+        assertEquals(Long.MIN_VALUE >>> 10 | Long.MIN_VALUE >>> 12 | Long.MIN_VALUE >>> 13, screen.getRow(7));
+
+        assertFalse(screen.drawSprite(60, 7, 0b0000_0100));
+        assertTrue(screen.drawSprite(60, 7, 0b0000_0100), "collision across the wrap at column 1");
+        assertTrue(screen.setPixel(13, 7));
+        assertFalse(screen.setPixel(13, 7));
+    }
+
+    @Test
+    void savesAndRestoresRows() {
+        ScreenMemory screen = new ScreenMemory();
+        screen.drawSprite(3, 0, 0xA5);
+        screen.drawSprite(40, 31, 0x3C);
+        ByteBuffer buffer = ByteBuffer.allocate(ScreenMemory.ROWS * Long.BYTES);
+        screen.save(buffer);
+        long hash = screen.hash();
+
+        ScreenMemory copy = new ScreenMemory();
+        assertNotEquals(hash, copy.hash());
+        buffer.flip();
+        copy.restore(buffer);
+
+        assertEquals(hash, copy.hash());
+        copy.clear();
+        assertEquals(new ScreenMemory().hash(), copy.hash());
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TranslatorTest {
+
+    // draws a moving, random sprite in a loop, with a subroutine call and a skip
+    private static final int[] PROGRAM = {
+            0x6000, // 200 LD V0, 0
+            0x6105, // 202 LD V1, 5
+            0x7001, // 204 ADD V0, 1
+            0x8104, // 206 ADD V1, V0
+            0x8216, // 208 SHR V2, V1
+            0xC30F, // 20A RND V3, 0F
+            0xF329, // 20C LD F, V3
+            0xD015, // 20E DRW V0, V1, 5
+            0x2218, // 210 CALL 218
+            0x3000, // 212 SE V0, 0
+            0x1204, // 214 JP 204
+            0x1204, // 216 JP 204
+            0x8424, // 218 ADD V4, V2
+            0xF41E, // 21A ADD I, V4
+            0x00EE, // 21C RET
+    };
+
+    @Test
+    void translatesHotBlocksThenCompilesThem() {
+        Memory memory = memory(PROGRAM);
+        Translator translator = new Translator(memory);
+
+        for (int i = 1; i < 16; i++) {
+            assertNull(translator.lookup(0x204), "cold at lookup " + i);
+        }
+        BasicBlock block = translator.lookup(0x204);
+        assertNotNull(block);
+        assertEquals(0x204, block.start);
+        assertEquals(0x212, block.end, "ends at the CALL");
+        assertNull(block.compiled);
+
+        for (int i = 0; i < 256; i++) {
+            translator.lookup(0x204);
+        }
+        assertNotNull(block.compiled);
+    }
+
+    @Test
+    void oddAddressesAreNeverTranslated() {
+        Translator translator = new Translator(memory(PROGRAM));
+
+        for (int i = 0; i < 100; i++) {
+            assertNull(translator.lookup(0x205));
+        }
+    }
+
+    @Test
+    void codeWriteDiscardsBlocksAndMarksEveryWrittenSlot() {
+        Memory memory = memory(PROGRAM);
+        Translator translator = new Translator(memory);
+        BasicBlock block = heat(translator, 0x204);
+        assertNotNull(block);
+
+        memory.writeWord(0x206, (byte) 0x81);
+        memory.writeWord(0x20A, (byte) 0xC3);
+
+        assertNull(heat(translator, 0x204), "block over a written slot");
+        assertNull(heat(translator, 0x208), "block over the second written slot");
+        assertNotNull(heat(translator, 0x20C), "block after the written slots");
+    }
+
+    @Test
+    void writeOutsideCodeKeepsBlocks() {
+        Memory memory = memory(PROGRAM);
+        Translator translator = new Translator(memory);
+        BasicBlock block = heat(translator, 0x204);
+
+        memory.writeWord(0x300, (byte) 1);
+
+        assertEquals(block, translator.lookup(0x204));
+    }
+
+    @Test
+    void restoredMemoryIsTranslatedAgain() {
+        Memory memory = memory(PROGRAM);
+        ByteBuffer saved = ByteBuffer.allocate(Memory.SIZE);
+        memory.save(saved);
+        Translator translator = new Translator(memory);
+        heat(translator, 0x204);
+        memory.writeWord(0x206, (byte) 0x81);
+        assertNull(heat(translator, 0x204));
+
+        saved.flip();
+        memory.restore(saved);
+
+        assertNotNull(heat(translator, 0x204), "written slot forgotten with the restored memory");
+    }
+
+    @Test
+    void loadedProgramIsTranslatedAgain() {
+        Memory memory = memory(PROGRAM);
+        Translator translator = new Translator(memory);
+        heat(translator, 0x204);
+
+        memory.load(0x200, Roms.rom(PROGRAM));
+
+        assertNotNull(heat(translator, 0x204), "program loaded over its blocks is not self-modifying");
+    }
+
+    @Test
+    void compilesEveryOperation() {
+        Map<Operation, Short> opCodes = new EnumMap<>(Operation.class);
+        for (int opCode = 0; opCode <= 0xFFFF; opCode++) {
+            opCodes.putIfAbsent(Instruction.decode((short) opCode).getOperation(), (short) opCode);
+        }
+        assertEquals(Operation.values().length, opCodes.size());
+
+        for (Map.Entry<Operation, Short> entry : opCodes.entrySet()) {
+            BasicBlock block = new BasicBlock(0x200, new Instruction[]{Instruction.decode((short) 0x6001),
+                    Instruction.decode(entry.getValue())});
+            assertNotNull(BlockCompiler.compile(block), entry.getKey().toString());
+        }
+    }
+
+    @Test
+    void compiledTierMatchesInterpreter() {
+        Chip8 interpreted = Roms.headless(PROGRAM);
+        Chip8 translated = Roms.headless(PROGRAM);
+        translated.setTranslationEnabled(true);
+        Chip8 compiled = Roms.headless(PROGRAM);
+        compiled.setTranslationEnabled(true);
+        compiled.setCompilationEnabled(true);
+        translated.setCompilationEnabled(false);
+
+        for (int frame = 0; frame < 1000; frame++) {
+            interpreted.runFrame(frame % 37 + 1);
+            translated.runFrame(frame % 37 + 1);
+            compiled.runFrame(frame % 37 + 1);
+        }
+
+        assertFalse(interpreted.isHalted());
+        byte[] expected = SaveState.capture(interpreted).array();
+        assertArrayEquals(expected, SaveState.capture(translated).array());
+        assertArrayEquals(expected, SaveState.capture(compiled).array());
+    }
+
+    private static BasicBlock heat(Translator translator, int address) {
+        BasicBlock block = null;
+        for (int i = 0; i < 16; i++) {
+            block = translator.lookup(address);
+        }
+        return block;
+    }
+
+    private static Memory memory(int... program) {
+        Memory memory = new Memory();
+        byte[] rom = Roms.rom(program);
+        for (int i = 0; i < rom.length; i++) {
+            memory.writeWord(0x200 + i, rom[i]);
+        }
+        return memory;
+    }
+}
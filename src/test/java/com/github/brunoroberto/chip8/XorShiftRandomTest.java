@@ -0,0 +1,66 @@
+package com.github.brunoroberto.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class XorShiftRandomTest {
+
+    @Test
+    void sameSeedGivesSameSequence() {
+        XorShiftRandom first = new XorShiftRandom(42);
+        XorShiftRandom second = new XorShiftRandom(42);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+        assertEquals(42, first.getSeed());
+    }
+
+    @Test
+    void closeSeedsGiveUnrelatedSequences() {
+        assertNotEquals(new XorShiftRandom(0).nextLong(), new XorShiftRandom(1).nextLong());
+        assertNotEquals(0, new XorShiftRandom(0).getState());
+    }
+
+    @Test
+    void restoredStateContinuesTheSequence() {
+        XorShiftRandom random = new XorShiftRandom(7);
+        random.nextLong();
+        long state = random.getState();
+        long[] expected = {random.nextLong(), random.nextLong(), random.nextLong()};
+
+        XorShiftRandom restored = new XorShiftRandom(99);
+        restored.setState(state);
+
+        assertArrayEquals(expected, new long[]{restored.nextLong(), restored.nextLong(), restored.nextLong()});
+        assertThrows(IllegalArgumentException.class, () -> restored.setState(0));
+    }
+
+    @Test
+    void bytesCoverTheWholeRange() {
+        XorShiftRandom random = new XorShiftRandom(3);
+        int[] counts = new int[256];
+        for (int i = 0; i < 256 * 1000; i++) {
+            counts[random.nextByte() & 0xFF]++;
+        }
+        for (int value = 0; value < counts.length; value++) {
+            assertEquals(1000, counts[value], 200, "value " + value);
+        }
+    }
+
+    @Test
+    void seededInterpretersDrawTheSameNumbers() {
+        int[] program = {0xC0FF, 0xC1FF, 0xC2FF, 0x1200};
+        Chip8 first = Roms.headless(program);
+        Chip8 second = Roms.headless(program);
+
+        first.runFrame(30);
+        second.runFrame(30);
+
+        assertArrayEquals(SaveState.capture(first).array(), SaveState.capture(second).array());
+    }
+}